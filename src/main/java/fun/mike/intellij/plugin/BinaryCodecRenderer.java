@@ -0,0 +1,258 @@
+package fun.mike.intellij.plugin;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Renders {@code writeTo(DataOutput)} and {@code readFrom(DataInput)}, a compact binary form of a record bean.
+ * <p>
+ * The fields are written in declaration order, in the same groups wide beans split their other methods into. Each
+ * group starts with a bitmap of which of its reference fields are null, followed by the values of the fields that
+ * aren't.
+ * Primitives and boxed primitives are written with the matching {@link java.io.DataOutput} method, strings as UTF-8
+ * and arrays element by element, both after a varint length.
+ */
+public class BinaryCodecRenderer {
+    private static final String DATA_OUTPUT = "java.io.DataOutput";
+    private static final String DATA_INPUT = "java.io.DataInput";
+
+    /**
+     * Whether every field of the bean has a type the codec can write. Other types have no binary form the
+     * generator could know of, so such beans get no codec at all.
+     */
+    public static boolean isSupported(RecordBean bean) {
+        return bean.fields().stream().allMatch(BinaryCodecRenderer::isSupported);
+    }
+
+    private static boolean isSupported(RecordBeanField field) {
+        return field.isPrimitive() ||
+                field.isBoxedPrimitive() ||
+                field.isString() ||
+                (field.isArray() && new RecordBeanField(field.name(), field.componentType()).isPrimitive());
+    }
+
+    /**
+     * Declarations of every method {@link #render(RecordBean)} can generate, chunk helpers once with index 0.
+     */
+    public String renderSignatures(RecordBean bean) {
+        return "public void writeTo(" + DATA_OUTPUT + " out);\n" +
+                "private void writeFields0(" + DATA_OUTPUT + " out);\n" +
+                "public static " + bean.qualifiedName() + " readFrom(" + DATA_INPUT + " in);\n" +
+                "private static void readFields0(" + DATA_INPUT + " in, " + bean.builderQualifiedName() +
+                " builder);\n" +
+                "private static void writeVarInt(" + DATA_OUTPUT + " out, int value);\n" +
+                "private static int readVarInt(" + DATA_INPUT + " in);\n" +
+                "private static void writeString(" + DATA_OUTPUT + " out, java.lang.String value);\n" +
+                "private static java.lang.String readString(" + DATA_INPUT + " in);";
+    }
+
+    public String render(RecordBean bean) {
+        List<List<RecordBeanField>> chunks = RecordBeanRenderer.chunks(bean.fields());
+
+        StringBuilder text = new StringBuilder();
+
+        // writeTo
+        text.append("public void writeTo(").append(DATA_OUTPUT).append(" out) throws java.io.IOException {\n");
+
+        if (chunks.size() == 1) {
+            text.append(writeStatements(chunks.get(0))).append("}");
+        } else {
+            for (int i = 0; i < chunks.size(); i++) {
+                text.append("writeFields").append(i).append("(out);\n");
+            }
+
+            text.append("}");
+
+            for (int i = 0; i < chunks.size(); i++) {
+                text.append("\n\n")
+                        .append("private void writeFields").append(i).append("(").append(DATA_OUTPUT)
+                        .append(" out) throws java.io.IOException {\n")
+                        .append(writeStatements(chunks.get(i)))
+                        .append("}");
+            }
+        }
+
+        // readFrom
+        text.append("\n\n")
+                .append("public static ").append(bean.qualifiedName()).append(" readFrom(").append(DATA_INPUT)
+                .append(" in) throws java.io.IOException {\n")
+                .append(bean.builderQualifiedName()).append(" builder = newBuilder();\n");
+
+        if (chunks.size() == 1) {
+            text.append(readStatements(chunks.get(0)));
+        } else {
+            for (int i = 0; i < chunks.size(); i++) {
+                text.append("readFields").append(i).append("(in, builder);\n");
+            }
+        }
+
+        text.append("return builder.build();\n")
+                .append("}");
+
+        if (chunks.size() > 1) {
+            for (int i = 0; i < chunks.size(); i++) {
+                text.append("\n\n")
+                        .append("private static void readFields").append(i).append("(").append(DATA_INPUT)
+                        .append(" in, ").append(bean.builderQualifiedName())
+                        .append(" builder) throws java.io.IOException {\n")
+                        .append(readStatements(chunks.get(i)))
+                        .append("}");
+            }
+        }
+
+        // Helpers, only those the fields need
+        boolean hasStrings = bean.fields().stream().anyMatch(RecordBeanField::isString);
+        boolean hasArrays = bean.fields().stream().anyMatch(RecordBeanField::isArray);
+
+        if (hasStrings || hasArrays) {
+            text.append("\n\n").append(generateVarIntHelpers());
+        }
+
+        if (hasStrings) {
+            text.append("\n\n").append(generateStringHelpers());
+        }
+
+        return text.toString();
+    }
+
+    private static String writeStatements(List<RecordBeanField> fields) {
+        List<RecordBeanField> nullableFields = nullableFields(fields);
+
+        StringBuilder statements = new StringBuilder();
+
+        for (int start = 0; start < nullableFields.size(); start += 8) {
+            List<RecordBeanField> group = nullableFields.subList(start, Math.min(start + 8, nullableFields.size()));
+
+            String bits = IntStream.range(0, group.size())
+                    .mapToObj(bit -> "(this." + group.get(bit).name() + " == null ? " + (1 << bit) + " : 0)")
+                    .collect(Collectors.joining(" |\n"));
+
+            statements.append("out.writeByte(").append(bits).append(");\n");
+        }
+
+        for (RecordBeanField field : fields) {
+            String value = "this." + field.name();
+
+            if (field.isPrimitive()) {
+                statements.append("out.").append(writeMethod(field.type())).append("(").append(value).append(");\n");
+            } else if (field.isBoxedPrimitive()) {
+                statements.append("if (").append(value).append(" != null) out.")
+                        .append(writeMethod(field.unboxedType())).append("(").append(value).append(");\n");
+            } else if (field.isString()) {
+                statements.append("if (").append(value).append(" != null) writeString(out, ").append(value)
+                        .append(");\n");
+            } else if (field.componentType().equals("byte")) {
+                statements.append("if (").append(value).append(" != null) {\n")
+                        .append("writeVarInt(out, ").append(value).append(".length);\n")
+                        .append("out.write(").append(value).append(");\n")
+                        .append("}\n");
+            } else {
+                statements.append("if (").append(value).append(" != null) {\n")
+                        .append("writeVarInt(out, ").append(value).append(".length);\n")
+                        .append("for (").append(field.componentType()).append(" element : ").append(value)
+                        .append(") out.").append(writeMethod(field.componentType())).append("(element);\n")
+                        .append("}\n");
+            }
+        }
+
+        return statements.toString();
+    }
+
+    private static String readStatements(List<RecordBeanField> fields) {
+        List<RecordBeanField> nullableFields = nullableFields(fields);
+
+        StringBuilder statements = new StringBuilder();
+
+        for (int group = 0; group * 8 < nullableFields.size(); group++) {
+            statements.append("int nulls").append(group).append(" = in.readUnsignedByte();\n");
+        }
+
+        for (RecordBeanField field : fields) {
+            String setter = "builder." + field.name();
+
+            if (field.isPrimitive()) {
+                statements.append(setter).append("(in.").append(readMethod(field.type())).append("());\n");
+                continue;
+            }
+
+            int index = nullableFields.indexOf(field);
+
+            statements.append("if ((nulls").append(index / 8).append(" & ").append(1 << (index % 8))
+                    .append(") == 0) ");
+
+            if (field.isBoxedPrimitive()) {
+                statements.append(setter).append("(in.").append(readMethod(field.unboxedType())).append("());\n");
+            } else if (field.isString()) {
+                statements.append(setter).append("(readString(in));\n");
+            } else {
+                String componentType = field.componentType();
+
+                statements.append("{\n")
+                        .append(field.type()).append(" array = new ").append(componentType)
+                        .append("[readVarInt(in)];\n");
+
+                if (componentType.equals("byte")) {
+                    statements.append("in.readFully(array);\n");
+                } else {
+                    statements.append("for (int i = 0; i < array.length; i++) array[i] = in.")
+                            .append(readMethod(componentType)).append("();\n");
+                }
+
+                statements.append(setter).append("(array);\n")
+                        .append("}\n");
+            }
+        }
+
+        return statements.toString();
+    }
+
+    private static List<RecordBeanField> nullableFields(List<RecordBeanField> fields) {
+        return fields.stream()
+                .filter(field -> !field.isPrimitive())
+                .collect(Collectors.toList());
+    }
+
+    private static String writeMethod(String primitiveType) {
+        return "write" + primitiveType.substring(0, 1).toUpperCase() + primitiveType.substring(1);
+    }
+
+    private static String readMethod(String primitiveType) {
+        return "read" + primitiveType.substring(0, 1).toUpperCase() + primitiveType.substring(1);
+    }
+
+    private static String generateVarIntHelpers() {
+        return "private static void writeVarInt(" + DATA_OUTPUT + " out, int value) throws java.io.IOException {\n" +
+                "while ((value & ~0x7F) != 0) {\n" +
+                "out.writeByte((value & 0x7F) | 0x80);\n" +
+                "value >>>= 7;\n" +
+                "}\n" +
+                "out.writeByte(value);\n" +
+                "}\n" +
+                "\n" +
+                "private static int readVarInt(" + DATA_INPUT + " in) throws java.io.IOException {\n" +
+                "int value = 0;\n" +
+                "for (int shift = 0; shift < 32; shift += 7) {\n" +
+                "int b = in.readUnsignedByte();\n" +
+                "value |= (b & 0x7F) << shift;\n" +
+                "if ((b & 0x80) == 0) return value;\n" +
+                "}\n" +
+                "throw new java.io.IOException(\"Malformed varint\");\n" +
+                "}";
+    }
+
+    private static String generateStringHelpers() {
+        return "private static void writeString(" + DATA_OUTPUT + " out, java.lang.String value) " +
+                "throws java.io.IOException {\n" +
+                "byte[] bytes = value.getBytes(java.nio.charset.StandardCharsets.UTF_8);\n" +
+                "writeVarInt(out, bytes.length);\n" +
+                "out.write(bytes);\n" +
+                "}\n" +
+                "\n" +
+                "private static java.lang.String readString(" + DATA_INPUT + " in) throws java.io.IOException {\n" +
+                "byte[] bytes = new byte[readVarInt(in)];\n" +
+                "in.readFully(bytes);\n" +
+                "return new java.lang.String(bytes, java.nio.charset.StandardCharsets.UTF_8);\n" +
+                "}";
+    }
+}
@@ -1,13 +1,20 @@
 package fun.mike.intellij.plugin;
 
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.util.TextRange;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiModifier;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.util.PsiUtil;
 
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
 public class ClassLocator {
     private ClassLocator() {}
 
@@ -26,20 +33,49 @@ public class ClassLocator {
     public static PsiClass locateStaticOrTopLevelClass(Editor editor, PsiFile file) {
         final int offset = editor.getCaretModel().getOffset();
 
-        final PsiElement element = file.findElementAt(offset);
-
-        if (element == null) {
-            return null;
+        // The innermost class around the caret wins, so scan from the innermost candidate outwards
+        for (ClassRange classRange : classRanges(file)) {
+            if (classRange.contains(offset)) {
+                return classRange.staticOrTopLevel ? classRange.psiClass : null;
+            }
         }
 
-        PsiClass topLevelClass = PsiUtil.getTopLevelClass(element);
-        PsiClass psiClass = PsiTreeUtil.getParentOfType(element, PsiClass.class);
+        return null;
+    }
 
-        if (psiClass != null && (psiClass.hasModifierProperty(PsiModifier.STATIC) ||
-                psiClass.getManager().areElementsEquivalent(psiClass, topLevelClass))) {
-            return psiClass;
-        } else {
-            return null;
+    /**
+     * Every class in the file with its text range, innermost classes first. Computed once per modification of the
+     * file, so moving the caret around only costs a scan of this list.
+     */
+    private static List<ClassRange> classRanges(PsiFile file) {
+        return CachedValuesManager.getCachedValue(file, () -> {
+            List<ClassRange> classRanges = PsiTreeUtil.findChildrenOfType(file, PsiClass.class).stream()
+                    .map(ClassRange::new)
+                    .sorted(Comparator.comparingInt((ClassRange classRange) -> classRange.startOffset).reversed())
+                    .collect(Collectors.toList());
+
+            return CachedValueProvider.Result.create(classRanges, file);
+        });
+    }
+
+    private static class ClassRange {
+        private final PsiClass psiClass;
+        private final int startOffset;
+        private final int endOffset;
+        private final boolean staticOrTopLevel;
+
+        private ClassRange(PsiClass psiClass) {
+            TextRange textRange = psiClass.getTextRange();
+
+            this.psiClass = psiClass;
+            this.startOffset = textRange.getStartOffset();
+            this.endOffset = textRange.getEndOffset();
+            this.staticOrTopLevel = psiClass.hasModifierProperty(PsiModifier.STATIC) ||
+                    psiClass.getManager().areElementsEquivalent(psiClass, PsiUtil.getTopLevelClass(psiClass));
+        }
+
+        private boolean contains(int offset) {
+            return startOffset <= offset && offset < endOffset;
         }
     }
 }
@@ -0,0 +1,169 @@
+package fun.mike.intellij.plugin;
+
+import java.util.List;
+
+/**
+ * Renders a nested {@code Columns}, a growable struct-of-arrays container holding each field of many record beans
+ * in an array of its own, so that bulk processing can loop over one primitive array at a time.
+ */
+public class ColumnsRenderer {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // Per-field statements of add, get and grow, formatted with the field name and the name of the size field
+    private static final String ADD_FIELD = "this.%1$s[%2$s] = bean.%1$s;\n";
+    private static final String GET_FIELD = "builder.%1$s(this.%1$s[index]);\n";
+    private static final String GROW_FIELD = "this.%1$s = java.util.Arrays.copyOf(this.%1$s, capacity);\n";
+
+    public String render(RecordBean bean) {
+        String columnsName = bean.qualifiedName() + ".Columns";
+
+        // The columns are named after the fields, so the bookkeeping must not be
+        String size = RecordBeanRenderer.freeName(bean, "size");
+        String capacity = RecordBeanRenderer.freeName(bean, "capacity");
+
+        StringBuilder text = new StringBuilder("public static final class Columns {\n")
+                .append("private int ").append(size).append(";\n")
+                .append("private int ").append(capacity).append(";\n");
+
+        for (RecordBeanField field : bean.fields()) {
+            text.append("private ").append(field.type()).append("[] ").append(field.name()).append(";\n");
+        }
+
+        text.append("\n")
+                .append("public Columns() {\n")
+                .append("this(").append(DEFAULT_CAPACITY).append(");\n")
+                .append("}\n")
+                .append("\n");
+
+        if (bean.fields().stream().anyMatch(RecordBeanField::isGeneric)) {
+            text.append("@java.lang.SuppressWarnings(\"unchecked\")\n");
+        }
+
+        text.append("public Columns(int capacity) {\n")
+                .append("this.").append(capacity).append(" = capacity;\n");
+
+        for (RecordBeanField field : bean.fields()) {
+            text.append("this.").append(field.name()).append(" = ").append(newArray(field, "capacity"))
+                    .append(";\n");
+        }
+
+        text.append("}\n")
+                .append("\n")
+                .append("public int ").append(size).append("() {\n")
+                .append("return ").append(size).append(";\n")
+                .append("}\n")
+                .append("\n")
+                .append("public ").append(columnsName).append(" add(").append(bean.qualifiedName())
+                .append(" bean) {\n")
+                .append("if (").append(size).append(" == ").append(capacity).append(") {\n")
+                .append("grow(java.lang.Math.max(").append(DEFAULT_CAPACITY).append(", ").append(capacity)
+                .append(" * 2));\n")
+                .append("}\n")
+                .append(body(bean, "addFields", "bean", ADD_FIELD, size))
+                .append(size).append("++;\n")
+                .append("return this;\n")
+                .append("}\n")
+                .append("\n")
+                .append("public ").append(bean.qualifiedName()).append(" get(int index) {\n")
+                .append("if (index < 0 || index >= ").append(size).append(") {\n")
+                .append("throw new java.lang.IndexOutOfBoundsException(\"Index: \" + index + \", size: \" + ")
+                .append(size).append(");\n")
+                .append("}\n")
+                .append(bean.builderQualifiedName()).append(" builder = newBuilder();\n")
+                .append(body(bean, "getFields", "index, builder", GET_FIELD, size))
+                .append("return builder.build();\n")
+                .append("}");
+
+        for (RecordBeanField field : bean.fields()) {
+            text.append("\n\n")
+                    .append("/**\n")
+                    .append(" * The backing array of the {@code ").append(field.name())
+                    .append("} column, with one element for each of the first {@link #").append(size)
+                    .append("()} beans.\n")
+                    .append(" */\n")
+                    .append("public ").append(field.type()).append("[] ").append(field.name()).append("() {\n")
+                    .append("return ").append(field.name()).append(";\n")
+                    .append("}");
+        }
+
+        text.append("\n\n")
+                .append("private void grow(int capacity) {\n")
+                .append("this.").append(capacity).append(" = capacity;\n")
+                .append(body(bean, "growFields", "capacity", GROW_FIELD, size))
+                .append("}");
+
+        if (RecordBeanRenderer.isChunked(bean)) {
+            text.append(helpers(bean, "addFields", bean.qualifiedName() + " bean", ADD_FIELD, size))
+                    .append(helpers(bean, "getFields", "int index, " + bean.builderQualifiedName() + " builder",
+                                    GET_FIELD, size))
+                    .append(helpers(bean, "growFields", "int capacity", GROW_FIELD, size));
+        }
+
+        return text.append("\n}").toString();
+    }
+
+    /**
+     * The statements for every field, or for wide beans, a call to each helper that handles one chunk of them.
+     */
+    private static String body(RecordBean bean,
+                               String helperName,
+                               String arguments,
+                               String statementFormat,
+                               String size) {
+        if (!RecordBeanRenderer.isChunked(bean)) {
+            return statements(bean.fields(), statementFormat, size);
+        }
+
+        StringBuilder calls = new StringBuilder();
+
+        for (int i = 0; i < RecordBeanRenderer.chunks(bean.fields()).size(); i++) {
+            calls.append(helperName).append(i).append("(").append(arguments).append(");\n");
+        }
+
+        return calls.toString();
+    }
+
+    private static String helpers(RecordBean bean,
+                                  String helperName,
+                                  String parameters,
+                                  String statementFormat,
+                                  String size) {
+        List<List<RecordBeanField>> chunks = RecordBeanRenderer.chunks(bean.fields());
+
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < chunks.size(); i++) {
+            text.append("\n\n")
+                    .append("private void ").append(helperName).append(i).append("(").append(parameters)
+                    .append(") {\n")
+                    .append(statements(chunks.get(i), statementFormat, size))
+                    .append("}");
+        }
+
+        return text.toString();
+    }
+
+    private static String statements(List<RecordBeanField> fields, String format, String size) {
+        StringBuilder statements = new StringBuilder();
+
+        for (RecordBeanField field : fields) {
+            statements.append(String.format(format, field.name(), size));
+        }
+
+        return statements.toString();
+    }
+
+    /**
+     * Generic arrays can't be created directly, so those are created raw and cast.
+     */
+    private static String newArray(RecordBeanField field, String length) {
+        String erasure = field.erasure();
+        int dimensions = erasure.indexOf('[');
+
+        String newArray = dimensions < 0 ?
+                "new " + erasure + "[" + length + "]" :
+                "new " + erasure.substring(0, dimensions) + "[" + length + "]" + erasure.substring(dimensions);
+
+        return field.isGeneric() ? "(" + field.type() + "[]) " + newArray : newArray;
+    }
+}
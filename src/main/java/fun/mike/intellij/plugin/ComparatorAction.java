@@ -0,0 +1,14 @@
+package fun.mike.intellij.plugin;
+
+import com.intellij.codeInsight.CodeInsightActionHandler;
+import com.intellij.codeInsight.actions.BaseCodeInsightAction;
+import org.jetbrains.annotations.NotNull;
+
+public class ComparatorAction extends BaseCodeInsightAction {
+    private final ComparatorActionHandler handler = new ComparatorActionHandler();
+
+    @Override
+    protected @NotNull CodeInsightActionHandler getHandler() {
+        return handler;
+    }
+}
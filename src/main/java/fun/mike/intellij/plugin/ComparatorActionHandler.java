@@ -0,0 +1,123 @@
+package fun.mike.intellij.plugin;
+
+import com.intellij.codeInsight.generation.PsiFieldMember;
+import com.intellij.codeInsight.hint.HintManager;
+import com.intellij.ide.util.MemberChooser;
+import com.intellij.lang.LanguageCodeInsightActionHandler;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.CommonClassNames;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiPrimitiveType;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.util.InheritanceUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Asks for sort keys among the fields of a class, the order to compare them in and their directions, and generates a
+ * static {@code Comparator} that orders by them.
+ */
+public class ComparatorActionHandler implements LanguageCodeInsightActionHandler {
+    private static final String TITLE = "Generate Comparator";
+
+    private final ComparatorRenderer renderer = new ComparatorRenderer();
+
+    @Override
+    public boolean isValidFor(Editor editor, PsiFile file) {
+        if (!(file instanceof PsiJavaFile)) {
+            return false;
+        }
+
+        return ClassLocator.locateStaticOrTopLevelClass(editor, file) != null;
+    }
+
+    @Override
+    public void invoke(@NotNull Project project, @NotNull Editor editor, @NotNull PsiFile file) {
+        PsiClass rootClass = ClassLocator.locateClass(editor, file);
+
+        if (rootClass == null) {
+            return;
+        }
+
+        PsiFieldMember[] candidates = Arrays.stream(rootClass.getFields())
+                .filter(field -> !field.hasModifierProperty(PsiModifier.STATIC) &&
+                        !field.hasModifierProperty(PsiModifier.TRANSIENT) &&
+                        isComparable(field.getType()))
+                .map(PsiFieldMember::new)
+                .toArray(PsiFieldMember[]::new);
+
+        if (candidates.length == 0) {
+            HintManager.getInstance().showErrorHint(editor, "No primitive or Comparable fields to sort by");
+            return;
+        }
+
+        MemberChooser<PsiFieldMember> chooser = new MemberChooser<>(candidates, false, true, project);
+        chooser.setTitle("Select Sort Keys");
+
+        if (!chooser.showAndGet()) {
+            return;
+        }
+
+        List<PsiFieldMember> selectedMembers = chooser.getSelectedElements();
+
+        if (selectedMembers == null || selectedMembers.isEmpty()) {
+            return;
+        }
+
+        // The chooser returns keys in field order, so they are put in comparison order separately. Asked even for a
+        // single key, which can still be descending
+        SortKeyOrderDialog orderDialog = new SortKeyOrderDialog(project, selectedMembers);
+
+        if (!orderDialog.showAndGet()) {
+            return;
+        }
+
+        List<SortKey> keys = orderDialog.getKeys();
+
+        WriteCommandAction.runWriteCommandAction(project, TITLE, null, () -> {
+            if (rootClass.isValid()) {
+                insert(project, rootClass, renderer.render(RecordBean.of(rootClass), keys));
+            }
+        });
+    }
+
+    /**
+     * The dialogs are modal, so the handler opens its own write action once they are closed.
+     */
+    @Override
+    public boolean startInWriteAction() {
+        return false;
+    }
+
+    /**
+     * Adds the comparator, or replaces the one generated earlier for the same keys.
+     */
+    private static void insert(Project project, PsiClass rootClass, String renderedComparator) {
+        PsiField comparator = JavaPsiFacade.getInstance(project).getElementFactory()
+                .createFieldFromText(renderedComparator, rootClass);
+
+        PsiField existingComparator = rootClass.findFieldByName(comparator.getName(), false);
+
+        PsiElement inserted = existingComparator == null ?
+                rootClass.add(comparator) :
+                existingComparator.replace(comparator);
+
+        JavaCodeStyleManager.getInstance(project).shortenClassReferences(inserted);
+    }
+
+    private static boolean isComparable(PsiType type) {
+        return (type instanceof PsiPrimitiveType && !PsiType.VOID.equals(type)) ||
+                InheritanceUtil.isInheritor(type, CommonClassNames.JAVA_LANG_COMPARABLE);
+    }
+}
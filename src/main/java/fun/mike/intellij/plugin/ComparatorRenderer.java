@@ -0,0 +1,69 @@
+package fun.mike.intellij.plugin;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Renders a static {@code Comparator} constant that orders record beans by a list of sort keys, comparing the fields
+ * directly instead of through a chain of key extractors.
+ * <p>
+ * A descending key reverses its whole order, nulls included, as {@code Comparator.reversed()} does.
+ */
+public class ComparatorRenderer {
+    /**
+     * {@code BY_} and the keys' constant names, each descending one followed by {@code _DESC}, e.g.
+     * {@code BY_LAST_NAME_AGE_DESC}.
+     */
+    public static String constantName(List<SortKey> keys) {
+        return "BY_" + keys.stream()
+                .map(key -> key.field().constantName() + (key.isDescending() ? "_DESC" : ""))
+                .collect(Collectors.joining("_"));
+    }
+
+    public String render(RecordBean bean, List<SortKey> keys) {
+        StringBuilder text = new StringBuilder("public static final java.util.Comparator<")
+                .append(bean.qualifiedName()).append("> ").append(constantName(keys)).append(" = (left, right) -> ");
+
+        SortKey lastKey = keys.get(keys.size() - 1);
+
+        if (keys.size() == 1) {
+            return text.append(comparison(lastKey)).append(";").toString();
+        }
+
+        text.append("{\n")
+                .append("int result = ").append(comparison(keys.get(0))).append(";\n");
+
+        for (SortKey key : keys.subList(1, keys.size() - 1)) {
+            text.append("if (result != 0) {\n")
+                    .append("return result;\n")
+                    .append("}\n")
+                    .append("result = ").append(comparison(key)).append(";\n");
+        }
+
+        return text.append("if (result != 0) {\n")
+                .append("return result;\n")
+                .append("}\n")
+                .append("return ").append(comparison(lastKey)).append(";\n")
+                .append("};")
+                .toString();
+    }
+
+    /**
+     * Primitives are compared with their wrapper's static {@code compare}, so nothing is boxed. Anything else is
+     * {@code Comparable}, with nulls first. Descending keys compare with the operands swapped.
+     */
+    private static String comparison(SortKey key) {
+        RecordBeanField field = key.field();
+        String left = (key.isDescending() ? "right." : "left.") + field.name();
+        String right = (key.isDescending() ? "left." : "right.") + field.name();
+
+        if (field.isPrimitive()) {
+            return "java.lang." + field.wrapperName() + ".compare(" + left + ", " + right + ")";
+        }
+
+        return left + " == " + right + " ? 0 : " +
+                left + " == null ? -1 : " +
+                right + " == null ? 1 : " +
+                left + ".compareTo(" + right + ")";
+    }
+}
@@ -0,0 +1,335 @@
+package fun.mike.intellij.plugin;
+
+import java.util.List;
+
+/**
+ * Renders {@code parseCsv}, which decodes a comma-separated line straight into a record bean's {@code Builder}, and
+ * {@code writeCsv(Appendable)}, which writes one, with a column per field in field order.
+ * <p>
+ * Integers and booleans are parsed and written in place, without slicing the line or formatting into a string.
+ * Fields that contain a comma, quote or line break are quoted, with quotes doubled. An empty field is null, so an
+ * empty string is written as {@code ""}.
+ */
+public class CsvCodecRenderer {
+    private static final String APPENDABLE = "java.lang.Appendable";
+    private static final String CHAR_SEQUENCE = "java.lang.CharSequence";
+
+    /**
+     * Whether every field of the bean has a type with a plain text form.
+     */
+    public static boolean isSupported(RecordBean bean) {
+        return bean.fields().stream()
+                .allMatch(field -> field.isPrimitive() || field.isBoxedPrimitive() || field.isString());
+    }
+
+    /**
+     * Declarations of every method {@link #render(RecordBean)} can generate, chunk helpers once with index 0.
+     */
+    public String renderSignatures(RecordBean bean) {
+        return "public static " + bean.qualifiedName() + " parseCsv(" + CHAR_SEQUENCE + " line);\n" +
+                "public static " + bean.qualifiedName() + " parseCsv(" + CHAR_SEQUENCE + " line, int start, " +
+                "int end);\n" +
+                "private static int parseCsvFields0(" + CHAR_SEQUENCE + " line, int position, int end, " +
+                bean.builderQualifiedName() + " builder);\n" +
+                "public void writeCsv(" + APPENDABLE + " out);\n" +
+                "private void writeCsvFields0(" + APPENDABLE + " out);\n" +
+                "private static int csvFieldEnd(" + CHAR_SEQUENCE + " line, int start, int end);\n" +
+                "private static long parseCsvLong(" + CHAR_SEQUENCE + " line, int start, int end, long min, " +
+                "long max);\n" +
+                "private static boolean parseCsvBoolean(" + CHAR_SEQUENCE + " line, int start, int end);\n" +
+                "private static char parseCsvChar(" + CHAR_SEQUENCE + " line, int start, int end);\n" +
+                "private static java.lang.String parseCsvString(" + CHAR_SEQUENCE + " line, int start, int end);\n" +
+                "private static void appendCsvLong(" + APPENDABLE + " out, long value);\n" +
+                "private static void appendCsvChar(" + APPENDABLE + " out, char value);\n" +
+                "private static void appendCsvString(" + APPENDABLE + " out, java.lang.String value);";
+    }
+
+    public String render(RecordBean bean) {
+        List<List<RecordBeanField>> chunks = RecordBeanRenderer.chunks(bean.fields());
+        boolean chunked = RecordBeanRenderer.isChunked(bean);
+
+        StringBuilder text = new StringBuilder();
+
+        // Parsing
+        text.append("public static ").append(bean.qualifiedName()).append(" parseCsv(").append(CHAR_SEQUENCE)
+                .append(" line) {\n")
+                .append("return parseCsv(line, 0, line.length());\n")
+                .append("}\n")
+                .append("\n")
+                .append("/**\n")
+                .append(" * Parses the line between {@code start} and {@code end}, so a slice of a larger buffer\n")
+                .append(" * can be parsed without copying it.\n")
+                .append(" */\n")
+                .append("public static ").append(bean.qualifiedName()).append(" parseCsv(").append(CHAR_SEQUENCE)
+                .append(" line, int start, int end) {\n")
+                .append(bean.builderQualifiedName()).append(" builder = newBuilder();\n")
+                .append("int position = start;\n");
+
+        if (chunked) {
+            for (int i = 0; i < chunks.size(); i++) {
+                text.append("position = parseCsvFields").append(i).append("(line, position, end, builder);\n");
+            }
+        } else {
+            text.append("int fieldEnd;\n")
+                    .append(parseStatements(bean.fields()));
+        }
+
+        text.append("if (position != end + 1) {\n")
+                .append("throw new java.lang.IllegalArgumentException(\"Expected ").append(bean.fields().size())
+                .append(" fields in \" + line.subSequence(start, end));\n")
+                .append("}\n")
+                .append("return builder.build();\n")
+                .append("}");
+
+        if (chunked) {
+            for (int i = 0; i < chunks.size(); i++) {
+                text.append("\n\n")
+                        .append("private static int parseCsvFields").append(i).append("(").append(CHAR_SEQUENCE)
+                        .append(" line, int position, int end, ").append(bean.builderQualifiedName())
+                        .append(" builder) {\n")
+                        .append("int fieldEnd;\n")
+                        .append(parseStatements(chunks.get(i)))
+                        .append("return position;\n")
+                        .append("}");
+            }
+        }
+
+        // Writing
+        text.append("\n\n")
+                .append("public void writeCsv(").append(APPENDABLE).append(" out) throws java.io.IOException {\n");
+
+        if (chunked) {
+            for (int i = 0; i < chunks.size(); i++) {
+                if (i > 0) {
+                    text.append("out.append(',');\n");
+                }
+
+                text.append("writeCsvFields").append(i).append("(out);\n");
+            }
+
+            text.append("}");
+
+            for (int i = 0; i < chunks.size(); i++) {
+                text.append("\n\n")
+                        .append("private void writeCsvFields").append(i).append("(").append(APPENDABLE)
+                        .append(" out) throws java.io.IOException {\n")
+                        .append(writeStatements(chunks.get(i)))
+                        .append("}");
+            }
+        } else {
+            text.append(writeStatements(bean.fields()))
+                    .append("}");
+        }
+
+        return text.append("\n\n").append(generateHelpers()).toString();
+    }
+
+    private static String parseStatements(List<RecordBeanField> fields) {
+        StringBuilder statements = new StringBuilder();
+
+        for (RecordBeanField field : fields) {
+            statements.append("fieldEnd = csvFieldEnd(line, position, end);\n");
+
+            String parse = parseExpression(field.isBoxedPrimitive() ? field.unboxedType() : field.type());
+
+            if (field.isBoxedPrimitive()) {
+                parse = "position == fieldEnd ? null : " + parse;
+            }
+
+            statements.append("builder.").append(field.name()).append("(").append(parse).append(");\n")
+                    .append("position = fieldEnd + 1;\n");
+        }
+
+        return statements.toString();
+    }
+
+    private static String parseExpression(String type) {
+        String range = "line, position, fieldEnd";
+
+        switch (type) {
+            case "boolean":
+                return "parseCsvBoolean(" + range + ")";
+            case "char":
+                return "parseCsvChar(" + range + ")";
+            case "byte":
+                return "(byte) parseCsvLong(" + range + ", java.lang.Byte.MIN_VALUE, java.lang.Byte.MAX_VALUE)";
+            case "short":
+                return "(short) parseCsvLong(" + range + ", java.lang.Short.MIN_VALUE, java.lang.Short.MAX_VALUE)";
+            case "int":
+                return "(int) parseCsvLong(" + range + ", java.lang.Integer.MIN_VALUE, java.lang.Integer.MAX_VALUE)";
+            case "long":
+                return "parseCsvLong(" + range + ", java.lang.Long.MIN_VALUE, java.lang.Long.MAX_VALUE)";
+            case "float":
+                // The JDK only parses floating point from a String
+                return "java.lang.Float.parseFloat(line.subSequence(position, fieldEnd).toString())";
+            case "double":
+                return "java.lang.Double.parseDouble(line.subSequence(position, fieldEnd).toString())";
+            default:
+                return "parseCsvString(" + range + ")";
+        }
+    }
+
+    private static String writeStatements(List<RecordBeanField> fields) {
+        StringBuilder statements = new StringBuilder();
+
+        for (int i = 0; i < fields.size(); i++) {
+            RecordBeanField field = fields.get(i);
+            String value = "this." + field.name();
+
+            if (i > 0) {
+                statements.append("out.append(',');\n");
+            }
+
+            if (field.isBoxedPrimitive()) {
+                statements.append("if (").append(value).append(" != null) ")
+                        .append(writeStatement(field.unboxedType(), value));
+            } else {
+                statements.append(writeStatement(field.type(), value));
+            }
+        }
+
+        return statements.toString();
+    }
+
+    private static String writeStatement(String type, String value) {
+        switch (type) {
+            case "boolean":
+                return "out.append(" + value + " ? \"true\" : \"false\");\n";
+            case "char":
+                return "appendCsvChar(out, " + value + ");\n";
+            case "byte":
+            case "short":
+            case "int":
+            case "long":
+                return "appendCsvLong(out, " + value + ");\n";
+            case "float":
+                return "out.append(java.lang.Float.toString(" + value + "));\n";
+            case "double":
+                return "out.append(java.lang.Double.toString(" + value + "));\n";
+            default:
+                return "appendCsvString(out, " + value + ");\n";
+        }
+    }
+
+    private static String generateHelpers() {
+        return "/**\n" +
+                " * The end of the field starting at {@code start}: the next comma outside quotes, or {@code end}.\n" +
+                " */\n" +
+                "private static int csvFieldEnd(" + CHAR_SEQUENCE + " line, int start, int end) {\n" +
+                "if (start > end) {\n" +
+                "throw new java.lang.IllegalArgumentException(\"Missing field in \" + line);\n" +
+                "}\n" +
+                "boolean quoted = false;\n" +
+                "for (int i = start; i < end; i++) {\n" +
+                "char c = line.charAt(i);\n" +
+                "if (c == '\"') quoted = !quoted;\n" +
+                "else if (c == ',' && !quoted) return i;\n" +
+                "}\n" +
+                "return end;\n" +
+                "}\n" +
+                "\n" +
+                "private static long parseCsvLong(" + CHAR_SEQUENCE + " line, int start, int end, long min, " +
+                "long max) {\n" +
+                "int i = start;\n" +
+                "boolean negative = i < end && line.charAt(i) == '-';\n" +
+                "if (i < end && (negative || line.charAt(i) == '+')) i++;\n" +
+                "if (i == end) {\n" +
+                "throw new java.lang.NumberFormatException(\"Not a number: \" + line.subSequence(start, end));\n" +
+                "}\n" +
+                "// Accumulated negatively, like Long.parseLong, so that Long.MIN_VALUE fits\n" +
+                "long limit = negative ? java.lang.Long.MIN_VALUE : -java.lang.Long.MAX_VALUE;\n" +
+                "long result = 0;\n" +
+                "for (; i < end; i++) {\n" +
+                "int digit = line.charAt(i) - '0';\n" +
+                "if (digit < 0 || digit > 9 || result < limit / 10 || result * 10 < limit + digit) {\n" +
+                "throw new java.lang.NumberFormatException(\"Not a number: \" + line.subSequence(start, end));\n" +
+                "}\n" +
+                "result = result * 10 - digit;\n" +
+                "}\n" +
+                "long value = negative ? result : -result;\n" +
+                "if (value < min || value > max) {\n" +
+                "throw new java.lang.NumberFormatException(\"Out of range: \" + line.subSequence(start, end));\n" +
+                "}\n" +
+                "return value;\n" +
+                "}\n" +
+                "\n" +
+                "/**\n" +
+                " * Like {@code Boolean.parseBoolean}: true only for {@code true}, ignoring case.\n" +
+                " */\n" +
+                "private static boolean parseCsvBoolean(" + CHAR_SEQUENCE + " line, int start, int end) {\n" +
+                "if (end - start != 4) return false;\n" +
+                "for (int i = 0; i < 4; i++) {\n" +
+                "if (java.lang.Character.toLowerCase(line.charAt(start + i)) != \"true\".charAt(i)) return false;\n" +
+                "}\n" +
+                "return true;\n" +
+                "}\n" +
+                "\n" +
+                "private static char parseCsvChar(" + CHAR_SEQUENCE + " line, int start, int end) {\n" +
+                "java.lang.String value = parseCsvString(line, start, end);\n" +
+                "if (value == null || value.length() != 1) {\n" +
+                "throw new java.lang.IllegalArgumentException(\"Not a single character: \" + " +
+                "line.subSequence(start, end));\n" +
+                "}\n" +
+                "return value.charAt(0);\n" +
+                "}\n" +
+                "\n" +
+                "private static java.lang.String parseCsvString(" + CHAR_SEQUENCE + " line, int start, int end) {\n" +
+                "if (start == end) return null;\n" +
+                "if (line.charAt(start) != '\"') return line.subSequence(start, end).toString();\n" +
+                "java.lang.StringBuilder value = new java.lang.StringBuilder(end - start);\n" +
+                "for (int i = start + 1; i < end - 1; i++) {\n" +
+                "char c = line.charAt(i);\n" +
+                "value.append(c);\n" +
+                "// A quote inside a quoted field is doubled\n" +
+                "if (c == '\"') i++;\n" +
+                "}\n" +
+                "return value.toString();\n" +
+                "}\n" +
+                "\n" +
+                "/**\n" +
+                " * Writes the digits one by one, so no string is formatted. Works on the negative value, which\n" +
+                " * always exists.\n" +
+                " */\n" +
+                "private static void appendCsvLong(" + APPENDABLE + " out, long value) throws java.io.IOException {\n" +
+                "long negative = value;\n" +
+                "if (value < 0) out.append('-');\n" +
+                "else negative = -value;\n" +
+                "long divisor = 1;\n" +
+                "while (negative / divisor <= -10) divisor *= 10;\n" +
+                "for (; divisor > 0; divisor /= 10) {\n" +
+                "out.append((char) ('0' - negative / divisor % 10));\n" +
+                "}\n" +
+                "}\n" +
+                "\n" +
+                "private static void appendCsvChar(" + APPENDABLE + " out, char value) throws java.io.IOException {\n" +
+                "if (value == ',' || value == '\"' || value == '\\r' || value == '\\n') {\n" +
+                "out.append('\"').append(value);\n" +
+                "if (value == '\"') out.append('\"');\n" +
+                "out.append('\"');\n" +
+                "} else {\n" +
+                "out.append(value);\n" +
+                "}\n" +
+                "}\n" +
+                "\n" +
+                "private static void appendCsvString(" + APPENDABLE + " out, java.lang.String value) " +
+                "throws java.io.IOException {\n" +
+                "if (value == null) return;\n" +
+                "boolean quoted = value.isEmpty();\n" +
+                "for (int i = 0; i < value.length() && !quoted; i++) {\n" +
+                "char c = value.charAt(i);\n" +
+                "quoted = c == ',' || c == '\"' || c == '\\r' || c == '\\n';\n" +
+                "}\n" +
+                "if (!quoted) {\n" +
+                "out.append(value);\n" +
+                "return;\n" +
+                "}\n" +
+                "out.append('\"');\n" +
+                "for (int i = 0; i < value.length(); i++) {\n" +
+                "char c = value.charAt(i);\n" +
+                "if (c == '\"') out.append('\"');\n" +
+                "out.append(c);\n" +
+                "}\n" +
+                "out.append('\"');\n" +
+                "}";
+    }
+}
@@ -0,0 +1,135 @@
+package fun.mike.intellij.plugin;
+
+import java.util.List;
+
+/**
+ * Renders {@code forEachField(FieldVisitor)}, which passes each field of a record bean to a visitor by name, a
+ * {@code toMap()} built on it, and the nested {@code FieldVisitor} interface.
+ * <p>
+ * The visitor has a callback for each primitive kind, so visitors that override them never box. By default they box
+ * and delegate to {@code visitObject}, which keeps the interface functional for visitors that don't care.
+ */
+public class FieldVisitorRenderer {
+    /**
+     * Declarations of every method {@link #render(RecordBean)} can generate, chunk helpers once with index 0.
+     */
+    public String renderSignatures(RecordBean bean) {
+        return "public void forEachField(" + bean.qualifiedName() + ".FieldVisitor visitor);\n" +
+                "private void visitFields0(" + bean.qualifiedName() + ".FieldVisitor visitor);\n" +
+                "public java.util.Map<java.lang.String, java.lang.Object> toMap();";
+    }
+
+    public String render(RecordBean bean) {
+        String visitor = RecordBeanRenderer.freeName(bean, "visitor");
+        String visitorName = bean.qualifiedName() + ".FieldVisitor";
+
+        StringBuilder text = new StringBuilder("public void forEachField(").append(visitorName).append(" ")
+                .append(visitor).append(") {\n");
+
+        StringBuilder helpers = new StringBuilder();
+
+        if (RecordBeanRenderer.isChunked(bean)) {
+            // Keep each method small enough for the JIT, as for the other methods of wide beans
+            List<List<RecordBeanField>> chunks = RecordBeanRenderer.chunks(bean.fields());
+
+            for (int i = 0; i < chunks.size(); i++) {
+                text.append("visitFields").append(i).append("(").append(visitor).append(");\n");
+
+                helpers.append("private void visitFields").append(i).append("(").append(visitorName).append(" ")
+                        .append(visitor).append(") {\n")
+                        .append(visitStatements(chunks.get(i), visitor))
+                        .append("}\n")
+                        .append("\n");
+            }
+        } else {
+            text.append(visitStatements(bean.fields(), visitor));
+        }
+
+        // Sized so that the map never rehashes at the default load factor
+        int capacity = bean.fields().size() * 4 / 3 + 1;
+
+        return text.append("}\n")
+                .append("\n")
+                .append(helpers)
+                .append("public java.util.Map<java.lang.String, java.lang.Object> toMap() {\n")
+                .append("java.util.Map<java.lang.String, java.lang.Object> map = new java.util.LinkedHashMap<>(")
+                .append(capacity).append(");\n")
+                .append("forEachField(map::put);\n")
+                .append("return map;\n")
+                .append("}")
+                .toString();
+    }
+
+    private static String visitStatements(List<RecordBeanField> fields, String visitor) {
+        StringBuilder statements = new StringBuilder();
+
+        for (RecordBeanField field : fields) {
+            statements.append(visitor).append(".").append(callback(field)).append("(\"").append(field.name())
+                    .append("\", ").append(field.name()).append(");\n");
+        }
+
+        return statements.toString();
+    }
+
+    private static String callback(RecordBeanField field) {
+        switch (field.type()) {
+            case "boolean":
+                return "visitBoolean";
+            case "char":
+                return "visitChar";
+            case "byte":
+                return "visitByte";
+            case "short":
+                return "visitShort";
+            case "int":
+                return "visitInt";
+            case "long":
+                return "visitLong";
+            case "float":
+                return "visitFloat";
+            case "double":
+                return "visitDouble";
+            default:
+                return "visitObject";
+        }
+    }
+
+    public String renderVisitorInterface() {
+        return "@java.lang.FunctionalInterface\n" +
+                "public interface FieldVisitor {\n" +
+                "void visitObject(java.lang.String name, java.lang.Object value);\n" +
+                "\n" +
+                "default void visitBoolean(java.lang.String name, boolean value) {\n" +
+                "visitObject(name, value);\n" +
+                "}\n" +
+                "\n" +
+                "default void visitChar(java.lang.String name, char value) {\n" +
+                "visitObject(name, value);\n" +
+                "}\n" +
+                "\n" +
+                "default void visitByte(java.lang.String name, byte value) {\n" +
+                "visitObject(name, value);\n" +
+                "}\n" +
+                "\n" +
+                "default void visitShort(java.lang.String name, short value) {\n" +
+                "visitObject(name, value);\n" +
+                "}\n" +
+                "\n" +
+                "default void visitInt(java.lang.String name, int value) {\n" +
+                "visitObject(name, value);\n" +
+                "}\n" +
+                "\n" +
+                "default void visitLong(java.lang.String name, long value) {\n" +
+                "visitObject(name, value);\n" +
+                "}\n" +
+                "\n" +
+                "default void visitFloat(java.lang.String name, float value) {\n" +
+                "visitObject(name, value);\n" +
+                "}\n" +
+                "\n" +
+                "default void visitDouble(java.lang.String name, double value) {\n" +
+                "visitObject(name, value);\n" +
+                "}\n" +
+                "}";
+    }
+}
@@ -0,0 +1,186 @@
+package fun.mike.intellij.plugin;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Renders a nested {@code Flyweight}, a view of a record bean encoded at a fixed offset in a
+ * {@link java.nio.ByteBuffer}, whose getters read straight from the buffer.
+ * <p>
+ * The layout has a slot for every field's value, widest first so that each slot is naturally aligned, followed by a
+ * presence byte for each boxed field, padded so that records can be laid out back to back. Only fixed-width types
+ * fit such a layout.
+ */
+public class FlyweightRenderer {
+    private static final String BYTE_BUFFER = "java.nio.ByteBuffer";
+
+    public static boolean isSupported(RecordBean bean) {
+        return bean.fields().stream().allMatch(field -> field.isPrimitive() || field.isBoxedPrimitive());
+    }
+
+    public String render(RecordBean bean) {
+        List<RecordBeanField> slots = new ArrayList<>(bean.fields());
+        slots.sort(Comparator.comparingInt((RecordBeanField field) -> width(valueType(field))).reversed());
+
+        StringBuilder text = new StringBuilder("public static final class Flyweight {\n");
+
+        // Layout
+        int offset = 0;
+
+        for (RecordBeanField field : slots) {
+            text.append("public static final int ").append(offsetName(field)).append(" = ").append(offset)
+                    .append(";\n");
+            offset += width(valueType(field));
+        }
+
+        for (RecordBeanField field : bean.fields()) {
+            if (field.isBoxedPrimitive()) {
+                text.append("public static final int ").append(presentOffsetName(field)).append(" = ")
+                        .append(offset).append(";\n");
+                offset += 1;
+            }
+        }
+
+        // Pad to the widest slot, so records laid out back to back stay aligned
+        int alignment = slots.isEmpty() ? 1 : width(valueType(slots.get(0)));
+        int size = (offset + alignment - 1) / alignment * alignment;
+
+        text.append("public static final int SIZE = ").append(size).append(";\n")
+                .append("\n")
+                .append("private ").append(BYTE_BUFFER).append(" buffer;\n")
+                .append("private int offset;\n")
+                .append("\n")
+                .append("public ").append(bean.qualifiedName()).append(".Flyweight wrap(").append(BYTE_BUFFER)
+                .append(" buffer, int offset) {\n")
+                .append("this.buffer = buffer;\n")
+                .append("this.offset = offset;\n")
+                .append("return this;\n")
+                .append("}");
+
+        // Getters
+        for (RecordBeanField field : bean.fields()) {
+            String read = readExpression(valueType(field), "offset + " + offsetName(field));
+
+            text.append("\n\n")
+                    .append("public ").append(field.type()).append(" ").append(field.name()).append("() {\n");
+
+            if (field.isBoxedPrimitive()) {
+                text.append("return buffer.get(offset + ").append(presentOffsetName(field)).append(") == 0 ? null : ")
+                        .append(read).append(";\n");
+            } else {
+                text.append("return ").append(read).append(";\n");
+            }
+
+            text.append("}");
+        }
+
+        // Encoder
+        String parameters = bean.qualifiedName() + " bean, " + BYTE_BUFFER + " buffer, int offset";
+
+        text.append("\n\n")
+                .append("public static void encode(").append(parameters).append(") {\n");
+
+        if (!RecordBeanRenderer.isChunked(bean)) {
+            text.append(encodeStatements(bean.fields()))
+                    .append("}");
+        } else {
+            // Keep each method small enough for the JIT, as for the other methods of wide beans
+            List<List<RecordBeanField>> chunks = RecordBeanRenderer.chunks(bean.fields());
+
+            for (int i = 0; i < chunks.size(); i++) {
+                text.append("encodeFields").append(i).append("(bean, buffer, offset);\n");
+            }
+
+            text.append("}");
+
+            for (int i = 0; i < chunks.size(); i++) {
+                text.append("\n\n")
+                        .append("private static void encodeFields").append(i).append("(").append(parameters)
+                        .append(") {\n")
+                        .append(encodeStatements(chunks.get(i)))
+                        .append("}");
+            }
+        }
+
+        return text.append("\n}").toString();
+    }
+
+    private static String encodeStatements(List<RecordBeanField> fields) {
+        StringBuilder statements = new StringBuilder();
+
+        for (RecordBeanField field : fields) {
+            String value = "bean." + field.name();
+            String write = writeStatement(valueType(field), "offset + " + offsetName(field), value);
+
+            if (field.isBoxedPrimitive()) {
+                String present = "offset + " + presentOffsetName(field);
+
+                statements.append("if (").append(value).append(" == null) {\n")
+                        .append("buffer.put(").append(present).append(", (byte) 0);\n")
+                        .append("} else {\n")
+                        .append("buffer.put(").append(present).append(", (byte) 1);\n")
+                        .append(write)
+                        .append("}\n");
+            } else {
+                statements.append(write);
+            }
+        }
+
+        return statements.toString();
+    }
+
+    private static String valueType(RecordBeanField field) {
+        return field.isBoxedPrimitive() ? field.unboxedType() : field.type();
+    }
+
+    private static int width(String primitiveType) {
+        switch (primitiveType) {
+            case "long":
+            case "double":
+                return 8;
+            case "int":
+            case "float":
+                return 4;
+            case "short":
+            case "char":
+                return 2;
+            default:
+                return 1;
+        }
+    }
+
+    private static String readExpression(String primitiveType, String index) {
+        switch (primitiveType) {
+            case "boolean":
+                return "buffer.get(" + index + ") != 0";
+            case "byte":
+                return "buffer.get(" + index + ")";
+            default:
+                return "buffer.get" + capitalize(primitiveType) + "(" + index + ")";
+        }
+    }
+
+    private static String writeStatement(String primitiveType, String index, String value) {
+        switch (primitiveType) {
+            case "boolean":
+                return "buffer.put(" + index + ", (byte) (" + value + " ? 1 : 0));\n";
+            case "byte":
+                return "buffer.put(" + index + ", " + value + ");\n";
+            default:
+                return "buffer.put" + capitalize(primitiveType) + "(" + index + ", " + value + ");\n";
+        }
+    }
+
+    private static String offsetName(RecordBeanField field) {
+        return field.constantName() + "_OFFSET";
+    }
+
+    private static String presentOffsetName(RecordBeanField field) {
+        return field.constantName() + "_PRESENT_OFFSET";
+    }
+
+    private static String capitalize(String str) {
+        return str.substring(0, 1).toUpperCase() + str.substring(1);
+    }
+}
@@ -0,0 +1,263 @@
+package fun.mike.intellij.plugin;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Renders Jackson codecs that read and write a record bean's fields directly, so Jackson doesn't have to introspect
+ * the bean or call its getters reflectively.
+ */
+public class JacksonCodecRenderer {
+    public static final String JSON_SERIALIZE_ANNOTATION = "com.fasterxml.jackson.databind.annotation.JsonSerialize";
+    public static final String JSON_DESERIALIZE_ANNOTATION =
+            "com.fasterxml.jackson.databind.annotation.JsonDeserialize";
+
+    private static final String JSON_GENERATOR = "com.fasterxml.jackson.core.JsonGenerator";
+    private static final String SERIALIZED_STRING = "com.fasterxml.jackson.core.io.SerializedString";
+    private static final String SERIALIZER_PROVIDER = "com.fasterxml.jackson.databind.SerializerProvider";
+    private static final String JSON_PARSER = "com.fasterxml.jackson.core.JsonParser";
+    private static final String JSON_TOKEN = "com.fasterxml.jackson.core.JsonToken";
+    private static final String DESERIALIZATION_CONTEXT = "com.fasterxml.jackson.databind.DeserializationContext";
+    private static final String JAVA_TYPE = "com.fasterxml.jackson.databind.JavaType";
+
+    public String renderSerializeAnnotation(RecordBean bean) {
+        return JSON_SERIALIZE_ANNOTATION + "(using = " + bean.qualifiedName() + ".Serializer.class)";
+    }
+
+    public String renderDeserializeAnnotation(RecordBean bean) {
+        return JSON_DESERIALIZE_ANNOTATION + "(using = " + bean.qualifiedName() + ".Deserializer.class)";
+    }
+
+    /**
+     * A nested {@code Serializer} that writes every field straight to the generator, with the field names encoded
+     * once up front.
+     */
+    public String renderSerializer(RecordBean bean) {
+        StringBuilder text = new StringBuilder("public static final class Serializer extends " +
+                                                       "com.fasterxml.jackson.databind.JsonSerializer<" +
+                                                       bean.qualifiedName() + "> {\n");
+
+        for (RecordBeanField field : bean.fields()) {
+            text.append("private static final ").append(SERIALIZED_STRING).append(" ").append(field.constantName())
+                    .append(" = new ").append(SERIALIZED_STRING).append("(\"").append(field.name()).append("\");\n");
+        }
+
+        String valueParameter = bean.qualifiedName() + " value";
+        String writerParameters = JSON_GENERATOR + " generator, " + SERIALIZER_PROVIDER + " provider";
+
+        text.append("\n")
+                .append("@Override\n")
+                .append("public void serialize(").append(valueParameter).append(", ").append(writerParameters)
+                .append(") throws java.io.IOException {\n")
+                .append("generator.writeStartObject();\n");
+
+        if (!RecordBeanRenderer.isChunked(bean)) {
+            return text.append(writeStatements(bean.fields()))
+                    .append("generator.writeEndObject();\n")
+                    .append("}\n")
+                    .append("}")
+                    .toString();
+        }
+
+        // Keep each method small enough for the JIT, as for the other methods of wide beans
+        List<List<RecordBeanField>> chunks = RecordBeanRenderer.chunks(bean.fields());
+
+        for (int i = 0; i < chunks.size(); i++) {
+            text.append("writeFields").append(i).append("(value, generator, provider);\n");
+        }
+
+        text.append("generator.writeEndObject();\n")
+                .append("}");
+
+        for (int i = 0; i < chunks.size(); i++) {
+            text.append("\n\n")
+                    .append("private static void writeFields").append(i).append("(").append(valueParameter)
+                    .append(", ").append(writerParameters).append(") throws java.io.IOException {\n")
+                    .append(writeStatements(chunks.get(i)))
+                    .append("}");
+        }
+
+        return text.append("\n}").toString();
+    }
+
+    private static String writeStatements(List<RecordBeanField> fields) {
+        StringBuilder statements = new StringBuilder();
+
+        for (RecordBeanField field : fields) {
+            statements.append("generator.writeFieldName(").append(field.constantName()).append(");\n")
+                    .append(writeStatement(field, "value." + field.name()));
+        }
+
+        return statements.toString();
+    }
+
+    private static String writeStatement(RecordBeanField field, String value) {
+        switch (field.type()) {
+            case "boolean":
+                return "generator.writeBoolean(" + value + ");\n";
+            case "byte":
+            case "short":
+            case "int":
+            case "long":
+            case "float":
+            case "double":
+                return "generator.writeNumber(" + value + ");\n";
+            case "char":
+                return "generator.writeString(java.lang.String.valueOf(" + value + "));\n";
+            case "java.lang.String":
+                return "if (" + value + " == null) generator.writeNull();\n" +
+                        "else generator.writeString(" + value + ");\n";
+            case "java.lang.Boolean":
+                return "if (" + value + " == null) generator.writeNull();\n" +
+                        "else generator.writeBoolean(" + value + ");\n";
+            case "java.lang.Byte":
+            case "java.lang.Short":
+            case "java.lang.Integer":
+            case "java.lang.Long":
+            case "java.lang.Float":
+            case "java.lang.Double":
+                return "if (" + value + " == null) generator.writeNull();\n" +
+                        "else generator.writeNumber(" + value + ");\n";
+            default:
+                // Anything else goes through the serializer Jackson would have used, which also handles null
+                return "provider.defaultSerializeValue(" + value + ", generator);\n";
+        }
+    }
+
+    /**
+     * A nested {@code Deserializer} that streams the object's tokens into the bean's {@code Builder}, selecting the
+     * field with a string switch and skipping unknown fields without reading them into a tree.
+     */
+    public String renderDeserializer(RecordBean bean) {
+        StringBuilder text = new StringBuilder("public static final class Deserializer extends " +
+                                                       "com.fasterxml.jackson.databind.JsonDeserializer<" +
+                                                       bean.qualifiedName() + "> {\n");
+
+        // Generic types are resolved once rather than on every read
+        for (RecordBeanField field : bean.fields()) {
+            if (field.isGeneric()) {
+                text.append("private static final ").append(JAVA_TYPE).append(" ").append(field.constantName())
+                        .append(" = com.fasterxml.jackson.databind.type.TypeFactory.defaultInstance()")
+                        .append(".constructType(new com.fasterxml.jackson.core.type.TypeReference<")
+                        .append(field.type()).append(">() {});\n");
+            }
+        }
+
+        String builderParameter = bean.builderQualifiedName() + " builder";
+        String readerParameters = JSON_PARSER + " parser, " + DESERIALIZATION_CONTEXT + " context";
+
+        text.append("\n")
+                .append("@Override\n")
+                .append("public ").append(bean.qualifiedName()).append(" deserialize(").append(readerParameters)
+                .append(") throws java.io.IOException {\n")
+                .append("java.lang.String name;\n")
+                .append("if (parser.isExpectedStartObjectToken()) name = parser.nextFieldName();\n")
+                .append("else if (parser.hasToken(").append(JSON_TOKEN).append(".FIELD_NAME)) ")
+                .append("name = parser.getCurrentName();\n")
+                .append("else return (").append(bean.qualifiedName()).append(") context.handleUnexpectedToken(")
+                .append(bean.qualifiedName()).append(".class, parser);\n")
+                .append("\n")
+                .append(bean.builderQualifiedName()).append(" builder = ").append(bean.qualifiedName())
+                .append(".newBuilder();\n")
+                .append("\n")
+                .append("for (; name != null; name = parser.nextFieldName()) {\n")
+                .append("parser.nextToken();\n");
+
+        if (!RecordBeanRenderer.isChunked(bean)) {
+            return text.append("switch (name) {\n")
+                    .append(readCases(bean.fields(), "break;"))
+                    .append("default: parser.skipChildren();\n")
+                    .append("}\n")
+                    .append("}\n")
+                    .append("\n")
+                    .append("return builder.build();\n")
+                    .append("}\n")
+                    .append("}")
+                    .toString();
+        }
+
+        // Keep each switch small enough for the JIT, as for the other methods of wide beans
+        List<List<RecordBeanField>> chunks = RecordBeanRenderer.chunks(bean.fields());
+
+        String calls = IntStream.range(0, chunks.size())
+                .mapToObj(i -> "!readField" + i + "(name, parser, context, builder)")
+                .collect(Collectors.joining(" && "));
+
+        text.append("if (").append(calls).append(") parser.skipChildren();\n")
+                .append("}\n")
+                .append("\n")
+                .append("return builder.build();\n")
+                .append("}");
+
+        for (int i = 0; i < chunks.size(); i++) {
+            text.append("\n\n")
+                    .append("private static boolean readField").append(i).append("(java.lang.String name, ")
+                    .append(readerParameters).append(", ").append(builderParameter)
+                    .append(") throws java.io.IOException {\n")
+                    .append("switch (name) {\n")
+                    .append(readCases(chunks.get(i), "return true;"))
+                    .append("default: return false;\n")
+                    .append("}\n")
+                    .append("}");
+        }
+
+        return text.append("\n}").toString();
+    }
+
+    private static String readCases(List<RecordBeanField> fields, String exit) {
+        StringBuilder cases = new StringBuilder();
+
+        for (RecordBeanField field : fields) {
+            cases.append("case \"").append(field.name()).append("\": builder.").append(field.name())
+                    .append("(").append(readExpression(field)).append("); ").append(exit).append("\n");
+        }
+
+        return cases.toString();
+    }
+
+    private static String readExpression(RecordBeanField field) {
+        String ifNull = "parser.hasToken(" + JSON_TOKEN + ".VALUE_NULL) ? null : ";
+
+        switch (field.type()) {
+            case "boolean":
+                return "parser.getBooleanValue()";
+            case "byte":
+                return "parser.getByteValue()";
+            case "short":
+                return "parser.getShortValue()";
+            case "int":
+                return "parser.getIntValue()";
+            case "long":
+                return "parser.getLongValue()";
+            case "float":
+                return "parser.getFloatValue()";
+            case "double":
+                return "parser.getDoubleValue()";
+            case "char":
+                return "parser.getText().charAt(0)";
+            case "java.lang.String":
+                return ifNull + "parser.getText()";
+            case "java.lang.Boolean":
+                return ifNull + "parser.getBooleanValue()";
+            case "java.lang.Byte":
+                return ifNull + "parser.getByteValue()";
+            case "java.lang.Short":
+                return ifNull + "parser.getShortValue()";
+            case "java.lang.Integer":
+                return ifNull + "parser.getIntValue()";
+            case "java.lang.Long":
+                return ifNull + "parser.getLongValue()";
+            case "java.lang.Float":
+                return ifNull + "parser.getFloatValue()";
+            case "java.lang.Double":
+                return ifNull + "parser.getDoubleValue()";
+            case "java.lang.Character":
+                return ifNull + "parser.getText().charAt(0)";
+            default:
+                // Anything else goes through the deserializer Jackson would have used, which doesn't handle null
+                return ifNull + "context.readValue(parser, " +
+                        (field.isGeneric() ? field.constantName() : field.type() + ".class") + ")";
+        }
+    }
+}
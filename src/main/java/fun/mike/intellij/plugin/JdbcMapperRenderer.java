@@ -0,0 +1,184 @@
+package fun.mike.intellij.plugin;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Renders {@code fromResultSet(ResultSet, int[])}, which reads a record bean from the current row of a
+ * {@link java.sql.ResultSet} into its {@code Builder} by column index, and {@code columnIndexes(ResultSet)}, which
+ * resolves those indexes from the column labels once per query.
+ * <p>
+ * A field's column label is its name in lower snake case, e.g. {@code first_name} for {@code firstName}.
+ */
+public class JdbcMapperRenderer {
+    private static final String RESULT_SET = "java.sql.ResultSet";
+    private static final String SQL_EXCEPTION = "java.sql.SQLException";
+
+    /**
+     * Declarations of every method {@link #render(RecordBean)} can generate, chunk helpers once with index 0.
+     */
+    public String renderSignatures(RecordBean bean) {
+        return "public static int[] columnIndexes(" + RESULT_SET + " resultSet);\n" +
+                "private static void findColumns0(" + RESULT_SET + " resultSet, int[] columnIndexes);\n" +
+                "public static " + bean.qualifiedName() + " fromResultSet(" + RESULT_SET + " resultSet, " +
+                "int[] columnIndexes);\n" +
+                "private static void readColumns0(" + RESULT_SET + " resultSet, int[] columnIndexes, " +
+                bean.builderQualifiedName() + " builder);";
+    }
+
+    public String render(RecordBean bean) {
+        List<RecordBeanField> fields = bean.fields();
+
+        StringBuilder text = new StringBuilder()
+                .append("/**\n")
+                .append(" * The index of each field's column in {@code resultSet}, in field order, for\n")
+                .append(" * {@link #fromResultSet(").append(RESULT_SET).append(", int[])}.\n")
+                .append(" */\n")
+                .append("public static int[] columnIndexes(").append(RESULT_SET).append(" resultSet) throws ")
+                .append(SQL_EXCEPTION).append(" {\n")
+                .append(columnIndexesBody(bean))
+                .append("}\n")
+                .append("\n")
+                .append("public static ").append(bean.qualifiedName()).append(" fromResultSet(").append(RESULT_SET)
+                .append(" resultSet, int[] columnIndexes) throws ").append(SQL_EXCEPTION).append(" {\n")
+                .append(bean.builderQualifiedName()).append(" builder = newBuilder();\n");
+
+        if (!RecordBeanRenderer.isChunked(bean)) {
+            return text.append(readStatements(fields, 0))
+                    .append("return builder.build();\n")
+                    .append("}")
+                    .toString();
+        }
+
+        // Keep each method small enough for the JIT, as for the other methods of wide beans
+        List<List<RecordBeanField>> chunks = RecordBeanRenderer.chunks(fields);
+
+        for (int i = 0; i < chunks.size(); i++) {
+            text.append("readColumns").append(i).append("(resultSet, columnIndexes, builder);\n");
+        }
+
+        text.append("return builder.build();\n")
+                .append("}");
+
+        int offset = 0;
+
+        for (int i = 0; i < chunks.size(); i++) {
+            text.append("\n\n")
+                    .append("private static void readColumns").append(i).append("(").append(RESULT_SET)
+                    .append(" resultSet, int[] columnIndexes, ").append(bean.builderQualifiedName())
+                    .append(" builder) throws ").append(SQL_EXCEPTION).append(" {\n")
+                    .append(readStatements(chunks.get(i), offset))
+                    .append("}");
+
+            offset += chunks.get(i).size();
+        }
+
+        return text.append(findColumnsHelpers(bean)).toString();
+    }
+
+    /**
+     * A single array literal, or for wide beans an array filled in by {@code findColumns} helpers, since each label
+     * lookup costs about 14 bytes of bytecode.
+     */
+    private static String columnIndexesBody(RecordBean bean) {
+        if (!RecordBeanRenderer.isChunked(bean)) {
+            String labels = bean.fields().stream()
+                    .map(JdbcMapperRenderer::findColumn)
+                    .collect(Collectors.joining(",\n"));
+
+            return "return new int[]{" + labels + "};\n";
+        }
+
+        List<List<RecordBeanField>> chunks = RecordBeanRenderer.chunks(bean.fields());
+
+        StringBuilder body = new StringBuilder("int[] columnIndexes = new int[").append(bean.fields().size())
+                .append("];\n");
+
+        for (int i = 0; i < chunks.size(); i++) {
+            body.append("findColumns").append(i).append("(resultSet, columnIndexes);\n");
+        }
+
+        return body.append("return columnIndexes;\n").toString();
+    }
+
+    private static String findColumnsHelpers(RecordBean bean) {
+        StringBuilder text = new StringBuilder();
+        List<List<RecordBeanField>> chunks = RecordBeanRenderer.chunks(bean.fields());
+
+        int offset = 0;
+
+        for (int i = 0; i < chunks.size(); i++) {
+            text.append("\n\n")
+                    .append("private static void findColumns").append(i).append("(").append(RESULT_SET)
+                    .append(" resultSet, int[] columnIndexes) throws ").append(SQL_EXCEPTION).append(" {\n");
+
+            for (RecordBeanField field : chunks.get(i)) {
+                text.append("columnIndexes[").append(offset++).append("] = ").append(findColumn(field))
+                        .append(";\n");
+            }
+
+            text.append("}");
+        }
+
+        return text.toString();
+    }
+
+    private static String findColumn(RecordBeanField field) {
+        return "resultSet.findColumn(\"" + columnLabel(field) + "\")";
+    }
+
+    private static String readStatements(List<RecordBeanField> fields, int offset) {
+        StringBuilder statements = new StringBuilder();
+
+        for (int i = 0; i < fields.size(); i++) {
+            statements.append(readStatement(fields.get(i), "columnIndexes[" + (offset + i) + "]"));
+        }
+
+        return statements.toString();
+    }
+
+    private static String readStatement(RecordBeanField field, String column) {
+        String setter = "builder." + field.name();
+
+        if (field.type().equals("char") || field.type().equals("java.lang.Character")) {
+            // JDBC has no getter for a single character
+            return "{\n" +
+                    "java.lang.String value = resultSet.getString(" + column + ");\n" +
+                    setter + "(value == null || value.isEmpty() ? " + (field.isPrimitive() ? "'\\0'" : "null") +
+                    " : value.charAt(0));\n" +
+                    "}\n";
+        }
+
+        if (field.isPrimitive()) {
+            // SQL NULL reads as 0 or false, as JDBC defines it
+            return setter + "(resultSet." + getter(field.type()) + "(" + column + "));\n";
+        }
+
+        if (field.isBoxedPrimitive()) {
+            // The getters can't return null, so SQL NULL has to be checked for after the read
+            return "{\n" +
+                    field.unboxedType() + " value = resultSet." + getter(field.unboxedType()) + "(" + column + ");\n" +
+                    setter + "(resultSet.wasNull() ? null : value);\n" +
+                    "}\n";
+        }
+
+        switch (field.type()) {
+            case "java.lang.String":
+                return setter + "(resultSet.getString(" + column + "));\n";
+            case "byte[]":
+                return setter + "(resultSet.getBytes(" + column + "));\n";
+            case "java.math.BigDecimal":
+                return setter + "(resultSet.getBigDecimal(" + column + "));\n";
+            default:
+                return setter + "(resultSet.getObject(" + column + ", " + field.erasure() + ".class));\n";
+        }
+    }
+
+    private static String getter(String primitiveType) {
+        return "get" + primitiveType.substring(0, 1).toUpperCase() + primitiveType.substring(1);
+    }
+
+    private static String columnLabel(RecordBeanField field) {
+        return field.constantName().toLowerCase();
+    }
+}
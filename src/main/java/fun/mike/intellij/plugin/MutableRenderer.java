@@ -0,0 +1,69 @@
+package fun.mike.intellij.plugin;
+
+import java.util.stream.Collectors;
+
+/**
+ * Renders a nested {@code Mutable}, a scratch twin of a record bean with the same fields and plain setters, for
+ * filling in place in hot loops and converting to the immutable bean at the boundary.
+ */
+public class MutableRenderer {
+    public String render(RecordBean bean) {
+        String mutableName = bean.qualifiedName() + ".Mutable";
+
+        StringBuilder text = new StringBuilder("public static final class Mutable {\n");
+
+        for (RecordBeanField field : bean.fields()) {
+            text.append("private ").append(field.type()).append(" ").append(field.name()).append(";\n");
+        }
+
+        for (RecordBeanField field : bean.fields()) {
+            text.append("\n")
+                    .append("public ").append(field.type()).append(" ").append(field.name()).append("() {\n")
+                    .append("return ").append(field.name()).append(";\n")
+                    .append("}\n")
+                    .append("\n")
+                    .append("public void set").append(capitalize(field.name())).append("(").append(field.type())
+                    .append(" value) {\n")
+                    .append("this.").append(field.name()).append(" = value;\n")
+                    .append("}\n");
+        }
+
+        text.append("\n")
+                .append("public ").append(mutableName).append(" copyFrom(").append(bean.qualifiedName())
+                .append(" bean) {\n");
+
+        for (RecordBeanField field : bean.fields()) {
+            text.append("this.").append(field.name()).append(" = bean.").append(field.name()).append(";\n");
+        }
+
+        text.append("return this;\n")
+                .append("}\n")
+                .append("\n")
+                .append("public ").append(bean.qualifiedName()).append(" toImmutable() {\n");
+
+        if (RecordBeanRenderer.usesBuilderConstructor(bean)) {
+            // Too many fields for a constructor that takes them all
+            text.append(bean.builderQualifiedName()).append(" builder = newBuilder();\n");
+
+            for (RecordBeanField field : bean.fields()) {
+                text.append("builder.").append(field.name()).append("(this.").append(field.name()).append(");\n");
+            }
+
+            text.append("return builder.build();\n");
+        } else {
+            String arguments = bean.fields().stream()
+                    .map(field -> "this." + field.name())
+                    .collect(Collectors.joining(", "));
+
+            text.append("return new ").append(bean.qualifiedName()).append("(").append(arguments).append(");\n");
+        }
+
+        return text.append("}\n")
+                .append("}")
+                .toString();
+    }
+
+    private static String capitalize(String str) {
+        return str.substring(0, 1).toUpperCase() + str.substring(1);
+    }
+}
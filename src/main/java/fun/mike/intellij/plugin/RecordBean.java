@@ -0,0 +1,97 @@
+package fun.mike.intellij.plugin;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiModifier;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Everything the generator needs to know about a class, detached from PSI so
+ * that it can be rendered outside of a read action.
+ */
+public class RecordBean {
+    private final String name;
+    private final String qualifiedName;
+    private final List<RecordBeanField> fields;
+
+    public RecordBean(String name, String qualifiedName, List<RecordBeanField> fields) {
+        this.name = name;
+        this.qualifiedName = qualifiedName;
+        this.fields = Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * Reads the bean's state from its instance fields. Static fields aren't part of an instance, and neither is the
+     * generated cached hash code. Other transient fields are kept, so regenerating doesn't change the constructor.
+     */
+    public static RecordBean of(PsiClass psiClass) {
+        List<RecordBeanField> fields = Arrays.stream(psiClass.getFields())
+                .filter(RecordBean::isState)
+                .map(RecordBeanField::of)
+                .collect(Collectors.toList());
+
+        return new RecordBean(psiClass.getName(), psiClass.getQualifiedName(), fields);
+    }
+
+    /**
+     * Whether {@code field} is read into {@link #fields()}.
+     */
+    public static boolean isState(PsiField field) {
+        return !field.hasModifierProperty(PsiModifier.STATIC) &&
+                !RecordBeanRenderer.CACHED_HASH_CODE_FIELD.equals(field.getName());
+    }
+
+    /**
+     * Whether {@code psiClass} has the shape the generator leaves behind: a nested {@code Builder} class and a
+     * static {@code newBuilder} method.
+     */
+    public static boolean isRecordBean(PsiClass psiClass) {
+        return psiClass.findInnerClassByName("Builder", false) != null &&
+                Arrays.stream(psiClass.findMethodsByName("newBuilder", false))
+                        .anyMatch(method -> method.hasModifierProperty(PsiModifier.STATIC));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String qualifiedName() {
+        return qualifiedName;
+    }
+
+    public String builderQualifiedName() {
+        return qualifiedName + ".Builder";
+    }
+
+    public List<RecordBeanField> fields() {
+        return fields;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RecordBean that = (RecordBean) o;
+        return Objects.equals(name, that.name) &&
+                Objects.equals(qualifiedName, that.qualifiedName) &&
+                Objects.equals(fields, that.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, qualifiedName, fields);
+    }
+
+    @Override
+    public String toString() {
+        return "RecordBean{" +
+                "name='" + name + "', " +
+                "qualifiedName='" + qualifiedName + "', " +
+                "fields=" + fields + "}";
+    }
+}
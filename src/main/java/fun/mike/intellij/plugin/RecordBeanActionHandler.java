@@ -1,37 +1,35 @@
 package fun.mike.intellij.plugin;
 
 import com.intellij.lang.LanguageCodeInsightActionHandler;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.PsiAnnotation;
 import com.intellij.psi.PsiClass;
-import com.intellij.psi.PsiClassType;
-import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiElementFactory;
 import com.intellij.psi.PsiField;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiJavaFile;
-import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiMember;
 import com.intellij.psi.PsiMethod;
 import com.intellij.psi.PsiModifier;
-import com.intellij.psi.PsiParameter;
-import com.intellij.psi.PsiStatement;
+import com.intellij.psi.PsiModifierList;
 import com.intellij.psi.PsiType;
 import com.intellij.psi.codeStyle.JavaCodeStyleManager;
-import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.util.PsiUtil;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class RecordBeanActionHandler implements LanguageCodeInsightActionHandler {
-    private static final String JSON_PROPERTY_ANNOTATION = "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final Logger LOG = Logger.getInstance(RecordBeanActionHandler.class);
 
     @Override
     public boolean isValidFor(Editor editor, PsiFile file) {
@@ -56,334 +54,319 @@ public class RecordBeanActionHandler implements LanguageCodeInsightActionHandler
             return;
         }
 
-        // Get fields
-        List<PsiField> fields = Arrays.asList(rootClass.getFields());
-
-        Set<String> potentialGetters = fields.stream()
-                .flatMap(field -> Stream.of(field.getName(), "get" + capitalize(field.getName())))
-                .collect(Collectors.toSet());
-
-        Set<String> potentialMethodsToDelete = new HashSet<>(potentialGetters);
-        potentialMethodsToDelete.add("toString");
-        potentialMethodsToDelete.add("hashCode");
-        potentialMethodsToDelete.add("equals");
-        potentialMethodsToDelete.add("newBuilder");
-
-        // Delete methods
-        List<PsiMethod> methods = Arrays.asList(rootClass.getMethods());
-
-        List<PsiMethod> methodsToDelete = methods.stream()
-                .filter(method -> potentialMethodsToDelete.contains(method.getName()))
-                .collect(Collectors.toList());
-
-        methodsToDelete.forEach(PsiElement::delete);
-
-        // Delete constructors
-        List<PsiMethod> constructors = Arrays.asList(rootClass.getConstructors());
-
-        constructors.forEach(PsiMethod::delete);
-
-        // Generate getters
-        fields.stream()
-                .map(field -> generateGetter(project, field))
-                .forEach(rootClass::add);
-
-        rootClass.add(generateConstructor(project, rootClass, fields));
-        rootClass.add(generateEquals(project, rootClass, fields));
-        rootClass.add(generateHashCode(project, rootClass, fields));
-        rootClass.add(generateToString(project, rootClass, fields));
-
-        // Delete inner class
-        List<PsiClass> innerClasses = Arrays.asList(rootClass.getInnerClasses());
-
-        PsiClass builderClass = innerClasses.stream()
-                .filter(innerClass -> innerClass.getName().equals("Builder"))
-                .findFirst()
-                .orElseGet(() -> generateBuilderClass(project, rootClass));
-
-        // Delete builder fields
-        Arrays.stream(builderClass.getFields())
-                .forEach(PsiField::delete);
-
-        // Delete potential builder methods
-        Set<String> potentialBuilderMethodsToDelete = new HashSet<>(potentialGetters);
-        potentialBuilderMethodsToDelete.add("build");
-
-        List<PsiMethod> builderMethods = Arrays.asList(builderClass.getMethods());
+        generate(project, rootClass);
+    }
 
-        List<PsiMethod> builderMethodsToDelete = Arrays.stream(builderClass.getMethods())
-                .filter(method -> potentialBuilderMethodsToDelete.contains(method.getName()))
-                .collect(Collectors.toList());
+    public void generate(Project project, PsiClass rootClass) {
+        RecordBean bean = RecordBean.of(rootClass);
 
-        builderMethodsToDelete.forEach(PsiMethod::delete);
+        apply(project, rootClass, bean, renderer(project).render(bean));
+    }
 
-        // Delete builder constructors
-        Arrays.stream(builderClass.getConstructors())
-                .forEach(PsiMethod::delete);
+    /**
+     * Reconciles {@code rootClass} with members already rendered from {@code bean}, which must have been read from
+     * the class as it is now.
+     *
+     * @return whether anything was changed
+     */
+    public boolean apply(Project project, PsiClass rootClass, RecordBean bean, String renderedMembers) {
+        long start = System.nanoTime();
 
-        // Generate builder fields
-        fields.stream()
-                .map(field -> generateField(project, field))
-                .forEach(builderClass::add);
+        RecordBeanSettings settings = settings(project);
+        RecordBeanRenderer renderer = new RecordBeanRenderer(settings);
 
-        // Generate builder methods
-        fields.stream()
-                .map(field -> generateBuilderMethod(project, builderClass, field))
-                .forEach(builderClass::add);
+        // Before the classes they register are deleted, while they still resolve
+        boolean changed = removeRetiredClassAnnotations(project, rootClass, bean, renderer, true);
 
-        // Generate build method
-        builderClass.add(generateBuildMethod(project, rootClass, fields));
+        // Only touch what differs
+        changed |= reconciler(project, rootClass, bean, settings)
+                .reconcile(rootClass, parse(project, rootClass, renderedMembers));
 
-        // Attach builder class
-        rootClass.add(generateNewBuilderMethod(project, rootClass, builderClass));
+        changed |= reconcileClassAnnotations(project, rootClass, renderer.renderClassAnnotations(bean), true);
 
-        // Shorten class names
-        JavaCodeStyleManager codeStyleManager = JavaCodeStyleManager.getInstance(project);
+        LOG.debug((changed ? "Regenerated " : "Left unchanged ") + bean.qualifiedName() + " with " +
+                          bean.fields().size() + " fields in " + (System.nanoTime() - start) / 1_000_000 + "ms");
 
-        codeStyleManager.shortenClassReferences(rootClass);
+        return changed;
     }
 
-    private PsiMethod generateGetter(Project project,
-                                     PsiField field) {
-        PsiElementFactory elementFactory =
-                JavaPsiFacade.getInstance(project).getElementFactory();
-
-        PsiMethod method = elementFactory.createMethod(field.getName(), field.getType());
-        PsiUtil.setModifierProperty(method, PsiModifier.PUBLIC, true);
-
-        PsiStatement returnStatement = elementFactory
-                .createStatementFromText("return " + field.getName() + ";", method);
+    /**
+     * Whether generating {@code rootClass} again would leave it unchanged.
+     */
+    public boolean isUpToDate(Project project, PsiClass rootClass) {
+        RecordBean bean = RecordBean.of(rootClass);
 
-        method.getBody().add(returnStatement);
-
-        method.getModifierList().addAnnotation(JSON_PROPERTY_ANNOTATION + "(\"" + field.getName() + "\")");
-
-        return method;
+        return isUpToDate(project, rootClass, bean, renderer(project).render(bean));
     }
 
-    private PsiMethod generateConstructor(Project project,
-                                          PsiClass clazz,
-                                          List<PsiField> fields) {
-        PsiElementFactory elementFactory =
-                JavaPsiFacade.getInstance(project).getElementFactory();
-
-        PsiMethod constructor = elementFactory.createConstructor(clazz.getName());
-
-        fields.forEach(field -> {
-            PsiParameter parameter = elementFactory.createParameter(field.getName(), field.getType());
-            constructor.getParameterList().add(parameter);
-        });
-
-        fields.forEach(field -> {
-            PsiStatement assignment = elementFactory
-                    .createStatementFromText("this." + field.getName() + " = " + field.getName() + ";",
-                                             constructor);
-
-            constructor.getBody().add(assignment);
-        });
-
-        String valueList = fields.stream()
-                .map(field -> '"' + field.getName() + '"')
-                .collect(Collectors.joining(", "));
+    /**
+     * Whether applying members already rendered from {@code bean} would leave {@code rootClass} unchanged. Like
+     * {@link #apply}, the bean must have been read from the class as it is now.
+     */
+    public boolean isUpToDate(Project project, PsiClass rootClass, RecordBean bean, String renderedMembers) {
+        RecordBeanSettings settings = settings(project);
+        RecordBeanRenderer renderer = new RecordBeanRenderer(settings);
+
+        return reconciler(project, rootClass, bean, settings)
+                .isReconciled(rootClass, parse(project, rootClass, renderedMembers)) &&
+                !reconcileClassAnnotations(project, rootClass, renderer.renderClassAnnotations(bean), false) &&
+                !removeRetiredClassAnnotations(project, rootClass, bean, renderer, false);
+    }
 
-        constructor.getModifierList().addAnnotation("java.beans.ConstructorProperties({" + valueList + "})");
+    public static RecordBeanRenderer renderer(Project project) {
+        return new RecordBeanRenderer(settings(project));
+    }
 
-        return constructor;
+    private static RecordBeanSettings settings(Project project) {
+        return RecordBeanSettings.getInstance(project).copy();
     }
 
-    private PsiMethod generateHashCode(Project project,
-                                       PsiClass clazz,
-                                       List<PsiField> fields) {
+    private static PsiClass parse(Project project, PsiClass rootClass, String renderedMembers) {
         PsiElementFactory elementFactory = JavaPsiFacade.getInstance(project).getElementFactory();
 
-        PsiMethod method = elementFactory.createMethod("hashCode", PsiType.INT);
-
-        PsiUtil.setModifierProperty(method, PsiModifier.PUBLIC, true);
-
-        String fieldList = fields.stream()
-                .map(PsiField::getName)
-                .collect(Collectors.joining(", "));
-
-        PsiStatement returnStatement = elementFactory
-                .createStatementFromText("return java.util.Objects.hash(" + fieldList + ");",
-                                         method);
-
-        method.getBody().add(returnStatement);
-
-        method.getModifierList().addAnnotation("Override");
-
-        return method;
+        // Every generated member is parsed at once
+        return elementFactory.createClassFromText(renderedMembers, rootClass);
     }
 
-    private PsiMethod generateEquals(Project project,
-                                     PsiClass clazz,
-                                     List<PsiField> fields) {
-        String className = clazz.getName();
-        PsiElementFactory elementFactory =
-                JavaPsiFacade.getInstance(project).getElementFactory();
-
-        PsiManager manager = PsiManager.getInstance(project);
-
-        PsiMethod method = elementFactory.createMethod("equals", PsiType.BOOLEAN);
-
-        PsiClassType objectType = PsiType.getJavaLangObject(manager, GlobalSearchScope.EMPTY_SCOPE);
-        PsiParameter parameter = elementFactory.createParameter("o", objectType);
-
-        method.getParameterList().add(parameter);
-
-        PsiUtil.setModifierProperty(method, PsiModifier.PUBLIC, true);
-
-        method.getModifierList().addAnnotation("Override");
-
-        // Reference equality check
-        PsiStatement referenceEqualityCheckStatement = elementFactory
-                .createStatementFromText("if (this == o) return true;", method);
-
-        method.getBody().add(referenceEqualityCheckStatement);
+    /**
+     * Adds the expected class annotations that are missing and replaces those that differ. Other annotations are left
+     * alone here, since they may have been written by hand; see {@link #removeRetiredClassAnnotations}.
+     *
+     * @param apply whether to make the changes, or only report whether there would be any
+     * @return whether anything was, or would be, changed
+     */
+    private static boolean reconcileClassAnnotations(Project project,
+                                                     PsiClass rootClass,
+                                                     Map<String, String> expectedAnnotations,
+                                                     boolean apply) {
+        PsiModifierList modifierList = rootClass.getModifierList();
+
+        if (modifierList == null) {
+            return false;
+        }
 
-        // Same class check
-        PsiStatement sameClassCheckStatement = elementFactory
-                .createStatementFromText("if (o == null || getClass() != o.getClass()) return false;", method);
+        PsiElementFactory elementFactory = JavaPsiFacade.getInstance(project).getElementFactory();
+        JavaCodeStyleManager codeStyleManager = JavaCodeStyleManager.getInstance(project);
 
-        method.getBody().add(sameClassCheckStatement);
+        boolean changed = false;
 
-        // Cast
-        String castedVariableName = className.substring(0, 1).toLowerCase() + className.substring(1);
+        for (Map.Entry<String, String> entry : expectedAnnotations.entrySet()) {
+            PsiAnnotation existingAnnotation = modifierList.findAnnotation(entry.getKey());
 
-        PsiStatement castStatement = elementFactory
-                .createStatementFromText(className + " " + castedVariableName + " = (" + className + ") o;", method);
+            if (existingAnnotation == null) {
+                if (apply) {
+                    codeStyleManager.shortenClassReferences(modifierList.addAnnotation(entry.getValue()));
+                }
 
-        method.getBody().add(castStatement);
+                changed = true;
+                continue;
+            }
 
-        // Field checks
-        String fieldExpressions = fields.stream()
-                .map(field -> {
-                    String fieldName = field.getName();
-                    return "java.util.Objects.equals(" + fieldName + ", " + castedVariableName + "." + fieldName + ")";
-                })
-                .collect(Collectors.joining(" &&\n"));
+            PsiAnnotation expectedAnnotation = elementFactory.createAnnotationFromText("@" + entry.getValue(),
+                                                                                      rootClass);
 
-        PsiStatement fieldCheckStatement = elementFactory
-                .createStatementFromText("return " + fieldExpressions + ";", method);
+            if (!RecordBeanReconciler.canonicalText(existingAnnotation)
+                    .equals(RecordBeanReconciler.canonicalText(expectedAnnotation))) {
+                if (apply) {
+                    codeStyleManager.shortenClassReferences(existingAnnotation.replace(expectedAnnotation));
+                }
 
-        method.getBody().add(fieldCheckStatement);
+                changed = true;
+            }
+        }
 
-        return method;
+        return changed;
     }
 
-
-    private PsiMethod generateToString(Project project,
-                                       PsiClass clazz,
-                                       List<PsiField> fields) {
-        String className = clazz.getName();
+    /**
+     * Deletes the class annotations an option that is now off would generate, such as the {@code @JsonSerialize} that
+     * registers the generated {@code Serializer}, so they don't point at a class that is about to be deleted. Only an
+     * annotation exactly as generated is deleted, which a hand-written one can't be, since it names the generated
+     * class.
+     *
+     * @param apply whether to delete them, or only report whether there are any
+     * @return whether anything was, or would be, deleted
+     */
+    private static boolean removeRetiredClassAnnotations(Project project,
+                                                         PsiClass rootClass,
+                                                         RecordBean bean,
+                                                         RecordBeanRenderer renderer,
+                                                         boolean apply) {
+        PsiModifierList modifierList = rootClass.getModifierList();
+
+        if (modifierList == null) {
+            return false;
+        }
 
         PsiElementFactory elementFactory = JavaPsiFacade.getInstance(project).getElementFactory();
+        Map<String, String> expectedAnnotations = renderer.renderClassAnnotations(bean);
 
-        PsiManager manager = PsiManager.getInstance(project);
-
-        PsiClassType stringType = PsiType.getJavaLangString(manager, GlobalSearchScope.EMPTY_SCOPE);
+        boolean changed = false;
 
-        PsiMethod method = elementFactory.createMethod("toString", stringType);
+        for (Map.Entry<String, String> entry : renderer.renderOptionalClassAnnotations(bean).entrySet()) {
+            if (expectedAnnotations.containsKey(entry.getKey())) {
+                continue;
+            }
 
-        PsiUtil.setModifierProperty(method, PsiModifier.PUBLIC, true);
+            PsiAnnotation existingAnnotation = modifierList.findAnnotation(entry.getKey());
 
-        method.getModifierList().addAnnotation("Override");
+            if (existingAnnotation == null) {
+                continue;
+            }
 
-        // Fields
-        String concatenations = fields.stream()
-                .map(field -> {
-                    boolean isString = field.getType().getCanonicalText().equals("java.lang.String");
-                    String fieldName = field.getName();
-                    String rightSide = isString ? "'\" + " + fieldName + " + \"'" :
-                            "\" + " + fieldName + " + \"";
-                    return fieldName + "=" + rightSide;
-                })
-                .collect(Collectors.joining(", \" +\n\""));
+            PsiAnnotation retiredAnnotation = elementFactory.createAnnotationFromText("@" + entry.getValue(),
+                                                                                     rootClass);
 
-        PsiStatement returnStatement = elementFactory
-                .createStatementFromText("return \"" + className + "{\" +\n\"" + concatenations + "}\";",
-                                         method);
+            if (RecordBeanReconciler.canonicalText(existingAnnotation)
+                    .equals(RecordBeanReconciler.canonicalText(retiredAnnotation))) {
+                if (apply) {
+                    existingAnnotation.delete();
+                }
 
-        method.getBody().add(returnStatement);
+                changed = true;
+            }
+        }
 
-        return method;
+        return changed;
     }
 
-    private PsiClass generateBuilderClass(Project project, PsiClass clazz) {
-        PsiElementFactory elementFactory = JavaPsiFacade.getInstance(project).getElementFactory();
+    private static RecordBeanReconciler reconciler(Project project,
+                                                   PsiClass rootClass,
+                                                   RecordBean bean,
+                                                   RecordBeanSettings settings) {
+        Set<String> potentialGetters = bean.fields().stream()
+                .flatMap(field -> Stream.of(field.name(), "get" + capitalize(field.name())))
+                .collect(Collectors.toSet());
 
-        PsiClass builderClass = (PsiClass) clazz.add(elementFactory.createClass("Builder"));
+        Set<String> potentialMethodsToDelete = new HashSet<>(potentialGetters);
+        potentialMethodsToDelete.add("toString");
+        potentialMethodsToDelete.add("hashCode");
+        potentialMethodsToDelete.add("equals");
+        potentialMethodsToDelete.add("newBuilder");
 
-        PsiUtil.setModifierProperty(builderClass, PsiModifier.STATIC, true);
-        PsiUtil.setModifierProperty(builderClass, PsiModifier.FINAL, true);
+        Set<String> potentialBuilderMethodsToDelete = new HashSet<>(potentialGetters);
+        potentialBuilderMethodsToDelete.add("build");
 
-        return builderClass;
+        // Members that only some options generate are owned by their exact signature, so that hand-written members
+        // that merely share a name are left alone
+        PsiClass optionalMembers = parse(project,
+                                         rootClass,
+                                         new RecordBeanRenderer(settings).renderOptionalMemberSignatures(bean));
+
+        Set<String> optionalSignatures = signatures(optionalMembers);
+        Set<String> optionalBuilderSignatures = signatures(optionalMembers.findInnerClassByName("Builder", false));
+
+        Map<String, PsiClass> nestedClassShapes = Arrays.stream(optionalMembers.getInnerClasses())
+                .filter(innerClass -> !"Builder".equals(innerClass.getName()))
+                .collect(Collectors.toMap(PsiClass::getName, innerClass -> innerClass));
+
+        Set<String> diffBitNames = settings.diffMask ?
+                bean.fields().stream().map(RecordBeanRenderer::diffBitName).collect(Collectors.toSet()) :
+                Collections.emptySet();
+
+        // Everything in the builder except fields, constructors and generated methods is kept
+        return new RecordBeanReconciler(
+                member -> isConstructorOrNamed(member, potentialMethodsToDelete) ||
+                        optionalSignatures.contains(signature(member)) ||
+                        isDiffBit(member, diffBitNames) ||
+                        hasGeneratedShape(member, nestedClassShapes),
+                Collections.singletonMap("Builder", member -> member instanceof PsiField ||
+                        isConstructorOrNamed(member, potentialBuilderMethodsToDelete) ||
+                        optionalBuilderSignatures.contains(signature(member))));
     }
 
-    private static PsiField generateField(Project project, PsiField rootField) {
-        PsiElementFactory elementFactory = JavaPsiFacade.getInstance(project).getElementFactory();
-        PsiField field = elementFactory.createField(rootField.getName(), rootField.getType());
+    private static boolean isConstructorOrNamed(PsiMember member, Set<String> names) {
+        if (!(member instanceof PsiMethod)) {
+            return false;
+        }
 
-        PsiUtil.setModifierProperty(field, PsiModifier.PRIVATE, true);
+        PsiMethod method = (PsiMethod) member;
 
-        return field;
+        return method.isConstructor() || names.contains(method.getName());
     }
 
-    private static PsiMethod generateBuilderMethod(Project project, PsiClass builderClass, PsiField field) {
-        String fieldName = field.getName();
-        PsiType fieldType = field.getType();
-
-        PsiElementFactory elementFactory = JavaPsiFacade.getInstance(project).getElementFactory();
-
-        PsiMethod method = elementFactory.createMethod(fieldName, PsiType.getTypeByName(builderClass.getQualifiedName(),
-                                                                                        project,
-                                                                                        GlobalSearchScope.EMPTY_SCOPE));
-
-        method.getParameterList().add(elementFactory.createParameter("val", fieldType));
+    private static Set<String> signatures(PsiClass psiClass) {
+        Set<String> signatures = new HashSet<>();
 
-        method.getBody().add(elementFactory.createStatementFromText(fieldName + " = val;", method));
-
-        method.getBody().add(elementFactory.createStatementFromText("return this;", method));
+        for (PsiMethod method : psiClass.getMethods()) {
+            signatures.add(signature(method));
+        }
 
-        PsiUtil.setModifierProperty(method, PsiModifier.PUBLIC, true);
+        for (PsiField field : psiClass.getFields()) {
+            signatures.add(signature(field));
+        }
 
-        return method;
+        return signatures;
     }
 
-    private PsiElement generateBuildMethod(Project project, PsiClass rootClass, List<PsiField> fields) {
-        PsiElementFactory elementFactory = JavaPsiFacade.getInstance(project).getElementFactory();
+    /**
+     * The canonical text of a method's return and parameter types with its name, or of a field's type with its name.
+     * Chunk helpers differ only in their index, so it is left out. Other members have none.
+     */
+    private static String signature(PsiMember member) {
+        if (member instanceof PsiMethod) {
+            PsiMethod method = (PsiMethod) member;
+            PsiType returnType = method.getReturnType();
 
-        PsiMethod method = elementFactory.createMethod("build",
-                                                       PsiType.getTypeByName(rootClass.getQualifiedName(),
-                                                                             project,
-                                                                             GlobalSearchScope.EMPTY_SCOPE));
+            String name = RecordBeanRenderer.CHUNK_METHOD_NAME.matcher(method.getName()).matches() ?
+                    method.getName().replaceAll("\\d+$", "#") :
+                    method.getName();
 
-        String fieldList = fields.stream()
-                .map(PsiField::getName)
-                .collect(Collectors.joining(",\n"));
+            String parameterTypes = Arrays.stream(method.getParameterList().getParameters())
+                    .map(parameter -> parameter.getType().getCanonicalText())
+                    .collect(Collectors.joining(","));
 
-        method.getBody().add(elementFactory.createStatementFromText("return new " + rootClass.getName() + "(" + fieldList + ");", method));
+            return (returnType == null ? "" : returnType.getCanonicalText()) + " " + name + "(" + parameterTypes + ")";
+        }
 
-        PsiUtil.setModifierProperty(method, PsiModifier.PUBLIC, true);
+        if (member instanceof PsiField) {
+            return ((PsiField) member).getType().getCanonicalText() + " " + member.getName();
+        }
 
-        return method;
+        return null;
     }
 
+    /**
+     * Whether {@code member} is a static nested class of the same name, kind and supertypes as one of the generated
+     * {@code shapes}, with at least its members and nested classes. A hand-written class that merely shares a name is
+     * left alone, even when its option is off.
+     */
+    private static boolean hasGeneratedShape(PsiMember member, Map<String, PsiClass> shapes) {
+        if (!(member instanceof PsiClass) || !member.hasModifierProperty(PsiModifier.STATIC)) {
+            return false;
+        }
 
-    private PsiElement generateNewBuilderMethod(Project project, PsiClass rootClass, PsiClass builderClass) {
-        PsiElementFactory elementFactory = JavaPsiFacade.getInstance(project).getElementFactory();
+        PsiClass psiClass = (PsiClass) member;
+        PsiClass shape = shapes.get(psiClass.getName());
 
-        PsiMethod method = elementFactory.createMethod("newBuilder",
-                                                       PsiType.getTypeByName(builderClass.getQualifiedName(),
-                                                                             project,
-                                                                             GlobalSearchScope.EMPTY_SCOPE));
+        return shape != null &&
+                shape.isInterface() == psiClass.isInterface() &&
+                typeTexts(shape.getExtendsListTypes()).equals(typeTexts(psiClass.getExtendsListTypes())) &&
+                signatures(psiClass).containsAll(signatures(shape)) &&
+                innerClassNames(psiClass).containsAll(innerClassNames(shape));
+    }
 
-        method.getBody().add(elementFactory.createStatementFromText("return new " + builderClass.getName() + "();", method));
+    private static List<String> typeTexts(PsiType[] types) {
+        return Arrays.stream(types)
+                .map(PsiType::getCanonicalText)
+                .collect(Collectors.toList());
+    }
 
-        PsiUtil.setModifierProperty(method, PsiModifier.PUBLIC, true);
-        PsiUtil.setModifierProperty(method, PsiModifier.STATIC, true);
+    private static Set<String> innerClassNames(PsiClass psiClass) {
+        return Arrays.stream(psiClass.getInnerClasses())
+                .map(PsiClass::getName)
+                .collect(Collectors.toSet());
+    }
 
-        return method;
+    /**
+     * Only the {@code long} constants named after the bean's current fields, and only while diff masks are generated,
+     * so that hand-written constants that happen to end in {@code _BIT} are left alone.
+     */
+    private static boolean isDiffBit(PsiMember member, Set<String> diffBitNames) {
+        return member instanceof PsiField &&
+                member.hasModifierProperty(PsiModifier.STATIC) &&
+                PsiType.LONG.equals(((PsiField) member).getType()) &&
+                diffBitNames.contains(member.getName());
     }
 
     private static String capitalize(String str) {
@@ -0,0 +1,152 @@
+package fun.mike.intellij.plugin;
+
+import com.intellij.openapi.options.Configurable;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.Nls;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.BoxLayout;
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+public class RecordBeanConfigurable implements Configurable {
+    private static final List<Option> OPTIONS = Arrays.asList(
+            new Option("Generate hashCode without Objects.hash (no boxing, no varargs array)",
+                       settings -> settings.unrolledHashCode,
+                       (settings, value) -> settings.unrolledHashCode = value),
+            new Option("Generate equals with primitive comparisons, cheapest first",
+                       settings -> settings.primitiveEquals,
+                       (settings, value) -> settings.primitiveEquals = value),
+            new Option("Cache hashCode in a transient field (immutable beans only)",
+                       settings -> settings.cachedHashCode,
+                       (settings, value) -> settings.cachedHashCode = value),
+            new Option("Generate toString on a pre-sized StringBuilder, with appendTo(StringBuilder)",
+                       settings -> settings.stringBuilderToString,
+                       (settings, value) -> settings.stringBuilderToString = value),
+            new Option("Generate a streaming Jackson serializer and register it with @JsonSerialize",
+                       settings -> settings.jsonSerializer,
+                       (settings, value) -> settings.jsonSerializer = value),
+            new Option("Generate a streaming Jackson deserializer and register it with @JsonDeserialize",
+                       settings -> settings.jsonDeserializer,
+                       (settings, value) -> settings.jsonDeserializer = value),
+            new Option("Generate a binary codec with writeTo(DataOutput) and readFrom(DataInput)",
+                       settings -> settings.binaryCodec,
+                       (settings, value) -> settings.binaryCodec = value),
+            new Option("Generate a ByteBuffer flyweight with fixed field offsets",
+                       settings -> settings.flyweight,
+                       (settings, value) -> settings.flyweight = value),
+            new Option("Generate a struct-of-arrays Columns container",
+                       settings -> settings.columns,
+                       (settings, value) -> settings.columns = value),
+            new Option("Generate a reflection-free Schema of the fields",
+                       settings -> settings.schema,
+                       (settings, value) -> settings.schema = value),
+            new Option("Generate intern() and Builder.buildCanonical() over a weak canonical map",
+                       settings -> settings.intern,
+                       (settings, value) -> settings.intern = value),
+            new Option("Generate a reusable Builder with reset(), from() and a thread-local reusableBuilder()",
+                       settings -> settings.reusableBuilder,
+                       (settings, value) -> settings.reusableBuilder = value),
+            new Option("Generate a Mutable twin with setters, copyFrom() and toImmutable()",
+                       settings -> settings.mutable,
+                       (settings, value) -> settings.mutable = value),
+            new Option("Generate diffMask() with a bit constant per field",
+                       settings -> settings.diffMask,
+                       (settings, value) -> settings.diffMask = value),
+            new Option("Generate forEachField(FieldVisitor) and toMap()",
+                       settings -> settings.fieldVisitor,
+                       (settings, value) -> settings.fieldVisitor = value),
+            new Option("Generate a JDBC row mapper with fromResultSet() and columnIndexes()",
+                       settings -> settings.jdbcMapper,
+                       (settings, value) -> settings.jdbcMapper = value),
+            new Option("Generate a CSV codec with parseCsv() and writeCsv()",
+                       settings -> settings.csvCodec,
+                       (settings, value) -> settings.csvCodec = value)
+    );
+
+    private final Project project;
+    private JCheckBox[] checkBoxes;
+
+    public RecordBeanConfigurable(Project project) {
+        this.project = project;
+    }
+
+    @Override
+    public @Nls String getDisplayName() {
+        return "Record Bean";
+    }
+
+    @Override
+    public @Nullable JComponent createComponent() {
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+
+        checkBoxes = new JCheckBox[OPTIONS.size()];
+
+        for (int i = 0; i < OPTIONS.size(); i++) {
+            checkBoxes[i] = new JCheckBox(OPTIONS.get(i).label);
+            panel.add(checkBoxes[i]);
+        }
+
+        reset();
+
+        return panel;
+    }
+
+    @Override
+    public boolean isModified() {
+        RecordBeanSettings settings = RecordBeanSettings.getInstance(project);
+
+        for (int i = 0; i < OPTIONS.size(); i++) {
+            if (checkBoxes[i].isSelected() != OPTIONS.get(i).getter.test(settings)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public void apply() {
+        RecordBeanSettings settings = RecordBeanSettings.getInstance(project);
+
+        for (int i = 0; i < OPTIONS.size(); i++) {
+            OPTIONS.get(i).setter.accept(settings, checkBoxes[i].isSelected());
+        }
+
+        settings.changed();
+    }
+
+    @Override
+    public void reset() {
+        RecordBeanSettings settings = RecordBeanSettings.getInstance(project);
+
+        for (int i = 0; i < OPTIONS.size(); i++) {
+            checkBoxes[i].setSelected(OPTIONS.get(i).getter.test(settings));
+        }
+    }
+
+    @Override
+    public void disposeUIResources() {
+        checkBoxes = null;
+    }
+
+    private static class Option {
+        private final String label;
+        private final Predicate<RecordBeanSettings> getter;
+        private final BiConsumer<RecordBeanSettings, Boolean> setter;
+
+        private Option(String label,
+                       Predicate<RecordBeanSettings> getter,
+                       BiConsumer<RecordBeanSettings, Boolean> setter) {
+            this.label = label;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+}
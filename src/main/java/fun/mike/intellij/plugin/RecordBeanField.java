@@ -0,0 +1,130 @@
+package fun.mike.intellij.plugin;
+
+import com.intellij.psi.PsiField;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+public class RecordBeanField {
+    private static final Map<String, String> PRIMITIVE_WRAPPERS = new HashMap<>();
+
+    static {
+        PRIMITIVE_WRAPPERS.put("boolean", "Boolean");
+        PRIMITIVE_WRAPPERS.put("byte", "Byte");
+        PRIMITIVE_WRAPPERS.put("short", "Short");
+        PRIMITIVE_WRAPPERS.put("char", "Character");
+        PRIMITIVE_WRAPPERS.put("int", "Integer");
+        PRIMITIVE_WRAPPERS.put("long", "Long");
+        PRIMITIVE_WRAPPERS.put("float", "Float");
+        PRIMITIVE_WRAPPERS.put("double", "Double");
+    }
+
+    private final String name;
+    private final String type;
+
+    public RecordBeanField(String name, String type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    public static RecordBeanField of(PsiField field) {
+        return new RecordBeanField(field.getName(), field.getType().getCanonicalText());
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String type() {
+        return type;
+    }
+
+    /**
+     * The field's name in upper snake case, for constants generated per field, e.g. {@code FIRST_NAME} for
+     * {@code firstName}.
+     */
+    public String constantName() {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+
+    public boolean isString() {
+        return type.equals("java.lang.String");
+    }
+
+    public boolean isPrimitive() {
+        return PRIMITIVE_WRAPPERS.containsKey(type);
+    }
+
+    public boolean isFloatingPoint() {
+        return type.equals("float") || type.equals("double");
+    }
+
+    public boolean isBoxedPrimitive() {
+        return type.startsWith("java.lang.") && PRIMITIVE_WRAPPERS.containsValue(type.substring("java.lang.".length()));
+    }
+
+    public boolean isArray() {
+        return type.endsWith("[]");
+    }
+
+    /**
+     * For a primitive field, the simple name of its wrapper class, e.g. {@code Integer} for {@code int}.
+     */
+    public String wrapperName() {
+        return PRIMITIVE_WRAPPERS.get(type);
+    }
+
+    /**
+     * For a boxed primitive field, the primitive it wraps, e.g. {@code int} for {@code java.lang.Integer}.
+     */
+    public String unboxedType() {
+        return PRIMITIVE_WRAPPERS.entrySet().stream()
+                .filter(entry -> type.equals("java.lang." + entry.getValue()))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * For an array field, the type of its elements, e.g. {@code int} for {@code int[]}.
+     */
+    public String componentType() {
+        return type.substring(0, type.length() - 2);
+    }
+
+    /**
+     * The field's type without type arguments, e.g. {@code java.util.List} for
+     * {@code java.util.List<java.lang.String>}.
+     */
+    public String erasure() {
+        int typeArguments = type.indexOf('<');
+
+        return typeArguments < 0 ? type : type.substring(0, typeArguments) + type.substring(type.lastIndexOf('>') + 1);
+    }
+
+    public boolean isGeneric() {
+        return type.contains("<");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RecordBeanField that = (RecordBeanField) o;
+        return Objects.equals(name, that.name) &&
+                Objects.equals(type, that.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, type);
+    }
+
+    @Override
+    public String toString() {
+        return "RecordBeanField{" +
+                "name='" + name + "', " +
+                "type='" + type + "'}";
+    }
+}
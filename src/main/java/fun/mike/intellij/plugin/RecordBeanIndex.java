@@ -0,0 +1,131 @@
+package fun.mike.intellij.plugin;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.indexing.ScalarIndexExtension;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes the qualified name of every record bean, so record beans can be found without parsing every Java file in the
+ * project. Only the names are kept, since candidates are checked against their parsed classes anyway.
+ */
+public class RecordBeanIndex extends ScalarIndexExtension<String> {
+    public static final ID<String, Void> NAME = ID.create("fun.mike.intellij.plugin.RecordBeanIndex");
+
+    @Override
+    public @NotNull ID<String, Void> getName() {
+        return NAME;
+    }
+
+    @Override
+    public @NotNull DataIndexer<String, Void, FileContent> getIndexer() {
+        return inputData -> {
+            Map<String, Void> recordBeans = new HashMap<>();
+
+            PsiFile file = inputData.getPsiFile();
+
+            if (file instanceof PsiJavaFile) {
+                for (PsiClass psiClass : ((PsiJavaFile) file).getClasses()) {
+                    indexRecordBeans(psiClass, recordBeans);
+                }
+            }
+
+            return recordBeans;
+        };
+    }
+
+    private static void indexRecordBeans(PsiClass psiClass, Map<String, Void> recordBeans) {
+        String qualifiedName = psiClass.getQualifiedName();
+
+        if (qualifiedName != null && RecordBean.isRecordBean(psiClass)) {
+            recordBeans.put(qualifiedName, null);
+        }
+
+        for (PsiClass innerClass : psiClass.getInnerClasses()) {
+            if (innerClass.hasModifierProperty(PsiModifier.STATIC)) {
+                indexRecordBeans(innerClass, recordBeans);
+            }
+        }
+    }
+
+    /**
+     * The qualified names of every record bean in {@code scope}, according to the index. Names of record beans in
+     * other files may be included too, which {@link #findRecordBeans} filters out.
+     */
+    public static List<String> findRecordBeanNames(GlobalSearchScope scope) {
+        List<String> qualifiedNames = new ArrayList<>();
+
+        FileBasedIndex.getInstance().processAllKeys(NAME, qualifiedName -> {
+            qualifiedNames.add(qualifiedName);
+            return true;
+        }, scope, null);
+
+        return qualifiedNames;
+    }
+
+    /**
+     * The record beans named {@code qualifiedName} in {@code scope}, according to the index.
+     */
+    public static List<PsiClass> findRecordBeans(Project project, String qualifiedName, GlobalSearchScope scope) {
+        PsiManager psiManager = PsiManager.getInstance(project);
+        JavaPsiFacade facade = JavaPsiFacade.getInstance(project);
+
+        List<PsiClass> recordBeans = new ArrayList<>();
+
+        for (VirtualFile virtualFile : FileBasedIndex.getInstance().getContainingFiles(NAME, qualifiedName, scope)) {
+            PsiFile file = psiManager.findFile(virtualFile);
+
+            if (file == null) {
+                continue;
+            }
+
+            PsiClass psiClass = facade.findClass(qualifiedName, GlobalSearchScope.fileScope(file));
+
+            if (psiClass != null) {
+                recordBeans.add(psiClass);
+            }
+        }
+
+        return recordBeans;
+    }
+
+    @Override
+    public @NotNull KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @Override
+    public int getVersion() {
+        return 4;
+    }
+
+    @Override
+    public FileBasedIndex.@NotNull InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(JavaFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+}
@@ -0,0 +1,278 @@
+package fun.mike.intellij.plugin;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiComment;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiJavaCodeReferenceElement;
+import com.intellij.psi.PsiMember;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiReferenceParameterList;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.PsiWhiteSpace;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Brings the members of an existing class in line with a parsed copy of the expected members, touching only what
+ * actually differs.
+ * <p>
+ * Members are matched by kind, name and parameter types and compared by {@link #canonicalText(PsiElement)}, so
+ * formatting, comments and whether a class reference is qualified or imported don't count as differences.
+ */
+public class RecordBeanReconciler {
+    private final Predicate<PsiMember> owned;
+    private final Map<String, Predicate<PsiMember>> nestedOwnership;
+
+    /**
+     * @param owned           which existing members of the class belong to the generator, and so are deleted when no
+     *                        longer expected
+     * @param nestedOwnership the same for each nested class that is reconciled member by member; nested classes not
+     *                        listed are owned outright
+     */
+    public RecordBeanReconciler(Predicate<PsiMember> owned, Map<String, Predicate<PsiMember>> nestedOwnership) {
+        this.owned = owned;
+        this.nestedOwnership = nestedOwnership;
+    }
+
+    /**
+     * Replaces members of {@code target} that differ from their counterpart in {@code expected}, inserts missing
+     * ones and deletes owned members that are no longer expected.
+     *
+     * @return whether anything was changed
+     */
+    public boolean reconcile(PsiClass target, PsiClass expected) {
+        return reconcile(target, expected, owned);
+    }
+
+    /**
+     * Whether {@link #reconcile(PsiClass, PsiClass)} would leave {@code target} unchanged.
+     */
+    public boolean isReconciled(PsiClass target, PsiClass expected) {
+        return isReconciled(target, expected, owned);
+    }
+
+    private boolean reconcile(PsiClass target, PsiClass expected, Predicate<PsiMember> owned) {
+        Map<String, PsiMember> existingMembers = new HashMap<>();
+        List<PsiMember> unexpectedMembers = unexpectedMembers(target, expected, existingMembers);
+
+        Map<String, PsiMember> expectedMembers = keyedMembers(expected);
+
+        boolean changed = false;
+
+        // Delete members that are no longer generated, deciding for all of them first, since whether a member is owned
+        // may depend on how its types resolve
+        List<PsiMember> ownedMembers = unexpectedMembers.stream()
+                .filter(owned)
+                .collect(Collectors.toList());
+
+        for (PsiMember member : ownedMembers) {
+            member.delete();
+            changed = true;
+        }
+
+        // Replace members that differ, and collect runs of consecutive missing members
+        List<List<PsiMember>> missingRuns = new ArrayList<>();
+        List<PsiMember> missingRun = new ArrayList<>();
+
+        for (Map.Entry<String, PsiMember> entry : expectedMembers.entrySet()) {
+            PsiMember expectedMember = entry.getValue();
+            PsiMember existingMember = existingMembers.get(entry.getKey());
+
+            if (existingMember == null) {
+                missingRun.add(expectedMember);
+                continue;
+            }
+
+            if (!missingRun.isEmpty()) {
+                missingRuns.add(missingRun);
+                missingRun = new ArrayList<>();
+            }
+
+            if (existingMember instanceof PsiClass && expectedMember instanceof PsiClass &&
+                    nestedOwnership.containsKey(existingMember.getName())) {
+                changed |= reconcile((PsiClass) existingMember,
+                                     (PsiClass) expectedMember,
+                                     nestedOwnership.get(existingMember.getName()));
+            } else if (!canonicalText(existingMember).equals(canonicalText(expectedMember))) {
+                shorten(existingMember.replace(expectedMember));
+                changed = true;
+            }
+        }
+
+        if (!missingRun.isEmpty()) {
+            missingRuns.add(missingRun);
+        }
+
+        // Insert each run of missing members with a single addRange
+        for (List<PsiMember> run : missingRuns) {
+            PsiElement first = target.addRange(run.get(0), run.get(run.size() - 1));
+
+            JavaCodeStyleManager.getInstance(target.getProject())
+                    .shortenClassReferences(target,
+                                            first.getStartOffsetInParent(),
+                                            first.getStartOffsetInParent() + spanLength(run));
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    private boolean isReconciled(PsiClass target, PsiClass expected, Predicate<PsiMember> owned) {
+        Map<String, PsiMember> existingMembers = new HashMap<>();
+
+        if (unexpectedMembers(target, expected, existingMembers).stream().anyMatch(owned)) {
+            return false;
+        }
+
+        for (Map.Entry<String, PsiMember> entry : keyedMembers(expected).entrySet()) {
+            PsiMember expectedMember = entry.getValue();
+            PsiMember existingMember = existingMembers.get(entry.getKey());
+
+            if (existingMember == null) {
+                return false;
+            }
+
+            if (existingMember instanceof PsiClass && expectedMember instanceof PsiClass &&
+                    nestedOwnership.containsKey(existingMember.getName())) {
+                if (!isReconciled((PsiClass) existingMember,
+                                  (PsiClass) expectedMember,
+                                  nestedOwnership.get(existingMember.getName()))) {
+                    return false;
+                }
+            } else if (!canonicalText(existingMember).equals(canonicalText(expectedMember))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Fills {@code existingMembers} with the members of {@code target} by key, and returns the members that have no
+     * counterpart in {@code expected}, including any duplicates.
+     */
+    private static List<PsiMember> unexpectedMembers(PsiClass target,
+                                                     PsiClass expected,
+                                                     Map<String, PsiMember> existingMembers) {
+        Map<String, PsiMember> expectedMembers = keyedMembers(expected);
+
+        List<PsiMember> unexpectedMembers = new ArrayList<>();
+
+        for (PsiMember member : members(target)) {
+            String key = key(member);
+
+            if (!expectedMembers.containsKey(key) || existingMembers.putIfAbsent(key, member) != null) {
+                unexpectedMembers.add(member);
+            }
+        }
+
+        return unexpectedMembers;
+    }
+
+    private static Map<String, PsiMember> keyedMembers(PsiClass psiClass) {
+        Map<String, PsiMember> keyedMembers = new LinkedHashMap<>();
+
+        members(psiClass).forEach(member -> keyedMembers.putIfAbsent(key(member), member));
+
+        return keyedMembers;
+    }
+
+    /**
+     * The tokens of {@code element}, skipping whitespace and comments, with every reference to a class replaced by
+     * the class's qualified name.
+     */
+    public static String canonicalText(PsiElement element) {
+        StringBuilder text = new StringBuilder();
+        appendCanonicalText(element, text);
+        return text.toString();
+    }
+
+    private static void appendCanonicalText(PsiElement element, StringBuilder text) {
+        if (element instanceof PsiWhiteSpace || element instanceof PsiComment) {
+            return;
+        }
+
+        if (element instanceof PsiJavaCodeReferenceElement) {
+            PsiJavaCodeReferenceElement reference = (PsiJavaCodeReferenceElement) element;
+            PsiElement resolved = reference.resolve();
+
+            if (resolved instanceof PsiClass && ((PsiClass) resolved).getQualifiedName() != null) {
+                text.append(((PsiClass) resolved).getQualifiedName()).append(' ');
+
+                PsiReferenceParameterList parameterList = reference.getParameterList();
+
+                if (parameterList != null) {
+                    appendCanonicalText(parameterList, text);
+                }
+
+                return;
+            }
+        }
+
+        PsiElement child = element.getFirstChild();
+
+        if (child == null) {
+            text.append(element.getText()).append(' ');
+            return;
+        }
+
+        for (; child != null; child = child.getNextSibling()) {
+            appendCanonicalText(child, text);
+        }
+    }
+
+    private static List<PsiMember> members(PsiClass psiClass) {
+        List<PsiMember> members = new ArrayList<>();
+
+        for (PsiElement child = psiClass.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof PsiMember) {
+                members.add((PsiMember) child);
+            }
+        }
+
+        return members;
+    }
+
+    private static String key(PsiMember member) {
+        if (member instanceof PsiMethod) {
+            PsiMethod method = (PsiMethod) member;
+
+            String parameterTypes = Arrays.stream(method.getParameterList().getParameters())
+                    .map(PsiParameter::getType)
+                    .map(PsiType::getCanonicalText)
+                    .collect(Collectors.joining(","));
+
+            return (method.isConstructor() ? "constructor" : "method " + method.getName()) + "(" + parameterTypes + ")";
+        }
+
+        if (member instanceof PsiField) {
+            return "field " + member.getName();
+        }
+
+        if (member instanceof PsiClass) {
+            return "class " + member.getName();
+        }
+
+        return "other " + member.getText();
+    }
+
+    private static int spanLength(List<PsiMember> run) {
+        PsiElement first = run.get(0);
+        PsiElement last = run.get(run.size() - 1);
+        return last.getTextRange().getEndOffset() - first.getTextRange().getStartOffset();
+    }
+
+    private static void shorten(PsiElement element) {
+        JavaCodeStyleManager.getInstance(element.getProject()).shortenClassReferences(element);
+    }
+}
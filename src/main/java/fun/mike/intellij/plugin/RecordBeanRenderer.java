@@ -0,0 +1,904 @@
+package fun.mike.intellij.plugin;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Renders the generated members of a record bean as plain Java source so the
+ * whole set can be parsed in one go instead of being built element by element.
+ * <p>
+ * Class references are fully qualified so they resolve the same way inside the
+ * parsed copy as in the real class; they are shortened once inserted.
+ */
+public class RecordBeanRenderer {
+    private static final String JSON_PROPERTY_ANNOTATION = "com.fasterxml.jackson.annotation.JsonProperty";
+
+    public static final String CACHED_HASH_CODE_FIELD = "cachedHashCode";
+
+    private static final String INTERNED_FIELD = "INTERNED";
+
+    private static final String REUSABLE_BUILDER_FIELD = "REUSABLE_BUILDER";
+
+    /**
+     * {@code diffMask} has one bit of a long for each field.
+     */
+    private static final int MAX_DIFF_FIELDS = 64;
+
+    /**
+     * Names of the helpers that wide beans split equals, hashCode, toString, the binary codec, the field visitor, the
+     * JDBC mapper and the CSV codec into.
+     */
+    public static final Pattern CHUNK_METHOD_NAME = Pattern.compile(
+            "(equals|hashCode|appendFields|writeFields|readFields|visitFields|findColumns|readColumns|parseCsvFields|" +
+                    "writeCsvFields)\\d+");
+
+    /**
+     * Beans with more fields than this get equals, hashCode and toString split into helpers of at most this many
+     * fields each. Even the most expensive comparison compiles to well under 80 bytes of bytecode per field, so every
+     * helper stays below HotSpot's 8000 byte limit for compiling a method at all, and the JIT keeps working.
+     */
+    private static final int MAX_FIELDS_PER_METHOD = 100;
+
+    /**
+     * The JVM allows at most 255 parameter slots per method, including {@code this}; long and double take two.
+     */
+    private static final int MAX_PARAMETER_SLOTS = 255;
+
+    private final RecordBeanSettings settings;
+    private final JacksonCodecRenderer jacksonCodecRenderer = new JacksonCodecRenderer();
+    private final BinaryCodecRenderer binaryCodecRenderer = new BinaryCodecRenderer();
+    private final FlyweightRenderer flyweightRenderer = new FlyweightRenderer();
+    private final ColumnsRenderer columnsRenderer = new ColumnsRenderer();
+    private final SchemaRenderer schemaRenderer = new SchemaRenderer();
+    private final MutableRenderer mutableRenderer = new MutableRenderer();
+    private final FieldVisitorRenderer fieldVisitorRenderer = new FieldVisitorRenderer();
+    private final JdbcMapperRenderer jdbcMapperRenderer = new JdbcMapperRenderer();
+    private final CsvCodecRenderer csvCodecRenderer = new CsvCodecRenderer();
+
+    public RecordBeanRenderer(RecordBeanSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * The annotations the bean class itself should carry, as text without the {@code @}, by qualified name.
+     */
+    public Map<String, String> renderClassAnnotations(RecordBean bean) {
+        Map<String, String> annotations = new LinkedHashMap<>();
+
+        if (settings.jsonSerializer) {
+            annotations.put(JacksonCodecRenderer.JSON_SERIALIZE_ANNOTATION,
+                            jacksonCodecRenderer.renderSerializeAnnotation(bean));
+        }
+
+        if (settings.jsonDeserializer) {
+            annotations.put(JacksonCodecRenderer.JSON_DESERIALIZE_ANNOTATION,
+                            jacksonCodecRenderer.renderDeserializeAnnotation(bean));
+        }
+
+        return annotations;
+    }
+
+    /**
+     * Every annotation {@link #renderClassAnnotations(RecordBean)} can render for the bean, whatever the settings.
+     */
+    public Map<String, String> renderOptionalClassAnnotations(RecordBean bean) {
+        Map<String, String> annotations = new LinkedHashMap<>();
+
+        annotations.put(JacksonCodecRenderer.JSON_SERIALIZE_ANNOTATION,
+                        jacksonCodecRenderer.renderSerializeAnnotation(bean));
+        annotations.put(JacksonCodecRenderer.JSON_DESERIALIZE_ANNOTATION,
+                        jacksonCodecRenderer.renderDeserializeAnnotation(bean));
+
+        return annotations;
+    }
+
+    public String render(RecordBean bean) {
+        StringBuilder text = new StringBuilder();
+
+        if (settings.cachedHashCode) {
+            text.append(generateCachedHashCodeField()).append("\n\n");
+        }
+
+        if (settings.intern) {
+            text.append(generateInternedField(bean)).append("\n\n");
+        }
+
+        if (settings.reusableBuilder) {
+            text.append(generateReusableBuilderField(bean)).append("\n\n");
+        }
+
+        if (usesDiffMask(bean)) {
+            text.append(generateDiffBits(bean)).append("\n\n");
+        }
+
+        bean.fields().forEach(field -> text.append(generateGetter(field)).append("\n\n"));
+
+        text.append(generateConstructor(bean)).append("\n\n");
+        text.append(generateEquals(bean)).append("\n\n");
+
+        if (usesDiffMask(bean)) {
+            text.append(generateDiffMask(bean)).append("\n\n");
+        }
+
+        text.append(generateHashCode(bean)).append("\n\n");
+        text.append(generateToString(bean)).append("\n\n");
+
+        if (usesAppendTo(bean)) {
+            text.append(generateAppendTo(bean)).append("\n\n");
+        }
+
+        if (settings.binaryCodec && BinaryCodecRenderer.isSupported(bean)) {
+            text.append(binaryCodecRenderer.render(bean)).append("\n\n");
+        }
+
+        if (settings.fieldVisitor) {
+            text.append(fieldVisitorRenderer.render(bean)).append("\n\n");
+        }
+
+        if (settings.jdbcMapper) {
+            text.append(jdbcMapperRenderer.render(bean)).append("\n\n");
+        }
+
+        if (settings.csvCodec && CsvCodecRenderer.isSupported(bean)) {
+            text.append(csvCodecRenderer.render(bean)).append("\n\n");
+        }
+
+        if (settings.intern) {
+            text.append(generateIntern(bean)).append("\n\n");
+        }
+
+        text.append(generateNewBuilderMethod(bean)).append("\n\n");
+
+        if (settings.reusableBuilder) {
+            text.append(generateReusableBuilderMethod(bean)).append("\n\n");
+        }
+
+        text.append(generateBuilderClass(bean));
+
+        if (settings.jsonSerializer) {
+            text.append("\n\n").append(jacksonCodecRenderer.renderSerializer(bean));
+        }
+
+        if (settings.jsonDeserializer) {
+            text.append("\n\n").append(jacksonCodecRenderer.renderDeserializer(bean));
+        }
+
+        if (settings.flyweight && FlyweightRenderer.isSupported(bean)) {
+            text.append("\n\n").append(flyweightRenderer.render(bean));
+        }
+
+        if (settings.columns) {
+            text.append("\n\n").append(columnsRenderer.render(bean));
+        }
+
+        if (settings.schema) {
+            text.append("\n\n").append(schemaRenderer.render(bean));
+        }
+
+        if (settings.mutable) {
+            text.append("\n\n").append(mutableRenderer.render(bean));
+        }
+
+        if (settings.fieldVisitor) {
+            text.append("\n\n").append(fieldVisitorRenderer.renderVisitorInterface());
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Declarations of every method and field that is generated only behind an option or for wide beans, with the
+     * types they are generated with, plus a {@code Builder} with those of the builder. Chunk helpers are declared once,
+     * with index 0.
+     * <p>
+     * The optional nested classes are declared by their shape: their supertypes, and those of their members and
+     * nested classes that don't depend on the fields. A nested class with a different shape was written by hand.
+     */
+    public String renderOptionalMemberSignatures(RecordBean bean) {
+        String beanName = bean.qualifiedName();
+        String builderName = bean.builderQualifiedName();
+
+        return generateCachedHashCodeField() + "\n" +
+                "private static final java.util.Map<" + beanName + ", java.lang.ref.WeakReference<" + beanName + ">> " +
+                INTERNED_FIELD + ";\n" +
+                "private static final java.lang.ThreadLocal<" + builderName + "> " + REUSABLE_BUILDER_FIELD + ";\n" +
+                "private boolean equals0(" + beanName + " that);\n" +
+                "private int hashCode0(int result);\n" +
+                "public long diffMask(" + beanName + " other);\n" +
+                "public java.lang.StringBuilder appendTo(java.lang.StringBuilder builder);\n" +
+                "private void appendFields0(java.lang.StringBuilder builder);\n" +
+                "public static " + beanName + " intern(" + beanName + " bean);\n" +
+                "public static " + builderName + " reusableBuilder();\n" +
+                binaryCodecRenderer.renderSignatures(bean) + "\n" +
+                fieldVisitorRenderer.renderSignatures(bean) + "\n" +
+                jdbcMapperRenderer.renderSignatures(bean) + "\n" +
+                csvCodecRenderer.renderSignatures(bean) + "\n" +
+                "public static final class Builder {\n" +
+                "public " + builderName + " reset();\n" +
+                "public " + builderName + " from(" + beanName + " bean);\n" +
+                "public " + beanName + " buildCanonical();\n" +
+                "}\n" +
+                "public static final class Serializer extends com.fasterxml.jackson.databind.JsonSerializer<" +
+                beanName + "> {\n" +
+                "public void serialize(" + beanName + " value, com.fasterxml.jackson.core.JsonGenerator generator, " +
+                "com.fasterxml.jackson.databind.SerializerProvider provider);\n" +
+                "}\n" +
+                "public static final class Deserializer extends com.fasterxml.jackson.databind.JsonDeserializer<" +
+                beanName + "> {\n" +
+                "public " + beanName + " deserialize(com.fasterxml.jackson.core.JsonParser parser, " +
+                "com.fasterxml.jackson.databind.DeserializationContext context);\n" +
+                "}\n" +
+                "public static final class Flyweight {\n" +
+                "public " + beanName + ".Flyweight wrap(java.nio.ByteBuffer buffer, int offset);\n" +
+                "public static void encode(" + beanName + " bean, java.nio.ByteBuffer buffer, int offset);\n" +
+                "}\n" +
+                "public static final class Columns {\n" +
+                "public " + beanName + ".Columns add(" + beanName + " bean);\n" +
+                "public " + beanName + " get(int index);\n" +
+                "}\n" +
+                "public static final class Schema {\n" +
+                "private Schema();\n" +
+                "public static final class Property<V> {}\n" +
+                "}\n" +
+                "public static final class Mutable {\n" +
+                "public " + beanName + ".Mutable copyFrom(" + beanName + " bean);\n" +
+                "public " + beanName + " toImmutable();\n" +
+                "}\n" +
+                "public interface FieldVisitor {\n" +
+                "void visitObject(java.lang.String name, java.lang.Object value);\n" +
+                "}";
+    }
+
+    private String generateGetter(RecordBeanField field) {
+        return "@" + JSON_PROPERTY_ANNOTATION + "(\"" + field.name() + "\")\n" +
+                "public " + field.type() + " " + field.name() + "() {\n" +
+                "return " + field.name() + ";\n" +
+                "}";
+    }
+
+    private String generateConstructor(RecordBean bean) {
+        List<RecordBeanField> fields = bean.fields();
+
+        if (usesBuilderConstructor(bean)) {
+            // Too many parameters for a constructor, so it copies from the builder instead
+            String builder = "builder";
+
+            String assignments = fields.stream()
+                    .map(field -> "this." + field.name() + " = " + builder + "." + field.name() + ";\n")
+                    .collect(Collectors.joining());
+
+            return "private " + bean.name() + "(" + bean.builderQualifiedName() + " " + builder + ") {\n" +
+                    assignments +
+                    "}";
+        }
+
+        String valueList = fields.stream()
+                .map(field -> '"' + field.name() + '"')
+                .collect(Collectors.joining(", "));
+
+        String parameterList = fields.stream()
+                .map(field -> field.type() + " " + field.name())
+                .collect(Collectors.joining(", "));
+
+        String assignments = fields.stream()
+                .map(field -> "this." + field.name() + " = " + field.name() + ";\n")
+                .collect(Collectors.joining());
+
+        return "@java.beans.ConstructorProperties({" + valueList + "})\n" +
+                "public " + bean.name() + "(" + parameterList + ") {\n" +
+                assignments +
+                "}";
+    }
+
+    private String generateCachedHashCodeField() {
+        return "private transient int " + CACHED_HASH_CODE_FIELD + ";";
+    }
+
+    /**
+     * The canonical instances, keyed by themselves through the generated equals and hashCode. Both the keys and the
+     * values are weak, so an instance nothing else refers to can still be collected.
+     */
+    private String generateInternedField(RecordBean bean) {
+        String mapType = "java.util.Map<" + bean.qualifiedName() + ", java.lang.ref.WeakReference<" +
+                bean.qualifiedName() + ">>";
+
+        return "private static final " + mapType + " " + INTERNED_FIELD + " = new java.util.WeakHashMap<>();";
+    }
+
+    private String generateIntern(RecordBean bean) {
+        return "public static " + bean.qualifiedName() + " intern(" + bean.qualifiedName() + " bean) {\n" +
+                "synchronized (" + INTERNED_FIELD + ") {\n" +
+                "java.lang.ref.WeakReference<" + bean.qualifiedName() + "> reference = " + INTERNED_FIELD +
+                ".get(bean);\n" +
+                bean.qualifiedName() + " canonical = reference == null ? null : reference.get();\n" +
+                "if (canonical != null) {\n" +
+                "return canonical;\n" +
+                "}\n" +
+                INTERNED_FIELD + ".put(bean, new java.lang.ref.WeakReference<>(bean));\n" +
+                "return bean;\n" +
+                "}\n" +
+                "}";
+    }
+
+    private String generateHashCode(RecordBean bean) {
+        String result = freeName(bean, "result");
+
+        String hashCode = generateHashCodeMethod(bean, result);
+
+        if (!isChunked(bean)) {
+            return hashCode;
+        }
+
+        List<List<RecordBeanField>> chunks = chunks(bean.fields());
+
+        StringBuilder text = new StringBuilder(hashCode);
+
+        for (int i = 0; i < chunks.size(); i++) {
+            text.append("\n\n")
+                    .append("private int hashCode").append(i).append("(int ").append(result).append(") {\n")
+                    .append(hashTerms(chunks.get(i), result))
+                    .append("return ").append(result).append(";\n")
+                    .append("}");
+        }
+
+        return text.toString();
+    }
+
+    private String generateHashCodeMethod(RecordBean bean, String result) {
+        if (settings.cachedHashCode) {
+            // The racy single-check idiom, as in String: a zero hash is just recomputed every time
+            String hash = freeName(bean, "hash");
+
+            return "@Override\n" +
+                    "public int hashCode() {\n" +
+                    "int " + hash + " = " + CACHED_HASH_CODE_FIELD + ";\n" +
+                    "if (" + hash + " == 0) {\n" +
+                    hashComputation(bean, result) +
+                    hash + " = " + result + ";\n" +
+                    CACHED_HASH_CODE_FIELD + " = " + hash + ";\n" +
+                    "}\n" +
+                    "return " + hash + ";\n" +
+                    "}";
+        }
+
+        if (settings.unrolledHashCode || isChunked(bean)) {
+            return "@Override\n" +
+                    "public int hashCode() {\n" +
+                    hashComputation(bean, result) +
+                    "return " + result + ";\n" +
+                    "}";
+        }
+
+        return "@Override\n" +
+                "public int hashCode() {\n" +
+                "return " + objectsHashExpression(bean) + ";\n" +
+                "}";
+    }
+
+    /**
+     * Statements that declare {@code result} and leave the hash code in it.
+     */
+    private String hashComputation(RecordBean bean, String result) {
+        if (isChunked(bean)) {
+            // Objects.hash over this many fields would be too big to compile, so wide beans are always unrolled
+            String calls = IntStream.range(0, chunks(bean.fields()).size())
+                    .mapToObj(i -> result + " = hashCode" + i + "(" + result + ");\n")
+                    .collect(Collectors.joining());
+
+            return "int " + result + " = 1;\n" + calls;
+        }
+
+        if (!settings.unrolledHashCode) {
+            return "int " + result + " = " + objectsHashExpression(bean) + ";\n";
+        }
+
+        return "int " + result + " = 1;\n" + hashTerms(bean.fields(), result);
+    }
+
+    /**
+     * The same result as Objects.hash for every field except arrays, which are hashed by content, without allocating
+     * or boxing anything.
+     */
+    private static String hashTerms(List<RecordBeanField> fields, String result) {
+        return fields.stream()
+                .map(field -> result + " = 31 * " + result + " + " + hashExpression(field) + ";\n")
+                .collect(Collectors.joining());
+    }
+
+    private String objectsHashExpression(RecordBean bean) {
+        // Arrays compared by content in equals must be hashed by content too
+        String fieldList = bean.fields().stream()
+                .map(field -> settings.primitiveEquals && field.isArray() ? hashExpression(field) : field.name())
+                .collect(Collectors.joining(", "));
+
+        return "java.util.Objects.hash(" + fieldList + ")";
+    }
+
+    private static String hashExpression(RecordBeanField field) {
+        String fieldName = field.name();
+
+        if (field.isPrimitive()) {
+            return "java.lang." + field.wrapperName() + ".hashCode(" + fieldName + ")";
+        }
+
+        if (field.isArray()) {
+            boolean nested = field.type().endsWith("[][]");
+            return "java.util.Arrays." + (nested ? "deepHashCode" : "hashCode") + "(" + fieldName + ")";
+        }
+
+        return "java.util.Objects.hashCode(" + fieldName + ")";
+    }
+
+    private String generateEquals(RecordBean bean) {
+        String className = bean.name();
+        String castedVariableName = castedVariableName(bean);
+
+        List<RecordBeanField> fields = settings.primitiveEquals ?
+                bean.fields().stream()
+                        .sorted(Comparator.comparingInt(RecordBeanRenderer::comparisonCost))
+                        .collect(Collectors.toList()) :
+                bean.fields();
+
+        String fieldExpressions;
+        StringBuilder chunkMethods = new StringBuilder();
+
+        if (isChunked(bean)) {
+            List<List<RecordBeanField>> chunks = chunks(fields);
+
+            fieldExpressions = IntStream.range(0, chunks.size())
+                    .mapToObj(i -> "equals" + i + "(" + castedVariableName + ")")
+                    .collect(Collectors.joining(" &&\n"));
+
+            for (int i = 0; i < chunks.size(); i++) {
+                chunkMethods.append("\n\n")
+                        .append("private boolean equals").append(i)
+                        .append("(").append(className).append(" ").append(castedVariableName).append(") {\n")
+                        .append("return ").append(equalsExpressions(chunks.get(i), castedVariableName)).append(";\n")
+                        .append("}");
+            }
+        } else {
+            fieldExpressions = equalsExpressions(fields, castedVariableName);
+        }
+
+        return "@Override\n" +
+                "public boolean equals(java.lang.Object o) {\n" +
+                "if (this == o) return true;\n" +
+                "if (o == null || getClass() != o.getClass()) return false;\n" +
+                className + " " + castedVariableName + " = (" + className + ") o;\n" +
+                (settings.cachedHashCode ? generateCachedHashCodeCheck(castedVariableName) : "") +
+                "return " + (fieldExpressions.isEmpty() ? "true" : fieldExpressions) + ";\n" +
+                "}" +
+                chunkMethods;
+    }
+
+    private String equalsExpressions(List<RecordBeanField> fields, String other) {
+        return fields.stream()
+                .map(field -> equalsExpression(field, other))
+                .collect(Collectors.joining(" &&\n"));
+    }
+
+    /**
+     * Instances whose hash codes have both been computed and differ can't be equal.
+     */
+    private String generateCachedHashCodeCheck(String other) {
+        String otherHashCode = other + "." + CACHED_HASH_CODE_FIELD;
+
+        return "if (" + CACHED_HASH_CODE_FIELD + " != 0 && " + otherHashCode + " != 0 && " +
+                CACHED_HASH_CODE_FIELD + " != " + otherHashCode + ") return false;\n";
+    }
+
+    /**
+     * An expression that is true when {@code field} is equal in this instance and in {@code other}. Unless the
+     * primitive equals setting is on, every field goes through {@code Objects.equals}.
+     */
+    private String equalsExpression(RecordBeanField field, String other) {
+        if (!settings.primitiveEquals) {
+            return "java.util.Objects.equals(" + field.name() + ", " + other + "." + field.name() + ")";
+        }
+
+        return valueEqualsExpression(field, other);
+    }
+
+    /**
+     * Like {@link #equalsExpression} with the primitive equals setting on: primitives are compared without boxing and
+     * arrays by their contents.
+     */
+    private static String valueEqualsExpression(RecordBeanField field, String other) {
+        String fieldName = field.name();
+        String otherField = other + "." + fieldName;
+
+        if (field.isFloatingPoint()) {
+            // Like the wrappers' equals: NaN equals NaN, and 0.0 differs from -0.0
+            return "java.lang." + field.wrapperName() + ".compare(" + fieldName + ", " + otherField + ") == 0";
+        }
+
+        if (field.isPrimitive()) {
+            return fieldName + " == " + otherField;
+        }
+
+        if (field.isArray()) {
+            boolean nested = field.type().endsWith("[][]");
+            return "java.util.Arrays." + (nested ? "deepEquals" : "equals") + "(" + fieldName + ", " + otherField + ")";
+        }
+
+        return "java.util.Objects.equals(" + fieldName + ", " + otherField + ")";
+    }
+
+    private String generateDiffBits(RecordBean bean) {
+        return IntStream.range(0, bean.fields().size())
+                .mapToObj(bit -> "public static final long " + diffBitName(bean.fields().get(bit)) + " = 1L << " +
+                        bit + ";")
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Which fields differ between this instance and another, as the bitwise or of their {@code _BIT} constants. The
+     * fields are compared by value whatever the primitive equals setting, since boxing on every call would defeat the
+     * point, and an array compared by reference would always count as changed.
+     */
+    private String generateDiffMask(RecordBean bean) {
+        String other = freeName(bean, "other");
+        String mask = freeName(bean, "mask");
+
+        StringBuilder text = new StringBuilder("public long diffMask(").append(bean.qualifiedName()).append(" ")
+                .append(other).append(") {\n")
+                .append("long ").append(mask).append(" = 0L;\n");
+
+        for (RecordBeanField field : bean.fields()) {
+            text.append("if (!(").append(valueEqualsExpression(field, other)).append(")) ").append(mask).append(" |= ")
+                    .append(diffBitName(field)).append(";\n");
+        }
+
+        return text.append("return ").append(mask).append(";\n")
+                .append("}")
+                .toString();
+    }
+
+    /**
+     * The name of the {@code diffMask} bit constant for {@code field}, e.g. {@code FIRST_NAME_BIT}.
+     */
+    static String diffBitName(RecordBeanField field) {
+        return field.constantName() + "_BIT";
+    }
+
+    /**
+     * Orders the comparisons in equals so that cheap, allocation-free ones run first and can reject early.
+     */
+    private static int comparisonCost(RecordBeanField field) {
+        if (field.isFloatingPoint()) {
+            return 1;
+        }
+
+        if (field.isPrimitive()) {
+            return 0;
+        }
+
+        if (field.isBoxedPrimitive()) {
+            return 2;
+        }
+
+        if (field.isString()) {
+            return 3;
+        }
+
+        if (field.isArray()) {
+            return 5;
+        }
+
+        return 4;
+    }
+
+    private String generateToString(RecordBean bean) {
+        if (usesAppendTo(bean)) {
+            return "@Override\n" +
+                    "public java.lang.String toString() {\n" +
+                    "return appendTo(new java.lang.StringBuilder(" + estimateToStringLength(bean) + ")).toString();\n" +
+                    "}";
+        }
+
+        String concatenations = bean.fields().stream()
+                .map(field -> {
+                    String fieldName = field.name();
+                    String rightSide = field.isString() ? "'\" + " + fieldName + " + \"'" :
+                            "\" + " + fieldName + " + \"";
+                    return fieldName + "=" + rightSide;
+                })
+                .collect(Collectors.joining(", \" +\n\""));
+
+        return "@Override\n" +
+                "public java.lang.String toString() {\n" +
+                "return \"" + bean.name() + "{\" +\n\"" + concatenations + "}\";\n" +
+                "}";
+    }
+
+    /**
+     * Appends the same text as the concatenating toString, so nested beans and loggers can share one buffer.
+     */
+    private String generateAppendTo(RecordBean bean) {
+        String builder = freeName(bean, "builder");
+
+        String signature = "public java.lang.StringBuilder appendTo(java.lang.StringBuilder " + builder + ") {\n";
+
+        if (!isChunked(bean)) {
+            return signature +
+                    "return " + builder + appendChain(bean.name() + "{", bean.fields(), false, "}") + ";\n" +
+                    "}";
+        }
+
+        List<List<RecordBeanField>> chunks = chunks(bean.fields());
+
+        StringBuilder text = new StringBuilder(signature)
+                .append(builder).append(".append(\"").append(bean.name()).append("{\");\n");
+
+        for (int i = 0; i < chunks.size(); i++) {
+            text.append("appendFields").append(i).append("(").append(builder).append(");\n");
+        }
+
+        text.append("return ").append(builder).append(".append(\"}\");\n")
+                .append("}");
+
+        for (int i = 0; i < chunks.size(); i++) {
+            text.append("\n\n")
+                    .append("private void appendFields").append(i)
+                    .append("(java.lang.StringBuilder ").append(builder).append(") {\n")
+                    .append(builder).append(appendChain("", chunks.get(i), i > 0, "")).append(";\n")
+                    .append("}");
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * A chain of {@code .append(...)} calls that writes {@code prefix}, each field as {@code name=value} separated by
+     * commas, and then {@code suffix}.
+     */
+    private static String appendChain(String prefix,
+                                      List<RecordBeanField> fields,
+                                      boolean leadingSeparator,
+                                      String suffix) {
+        List<String> appends = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(prefix);
+
+        for (int i = 0; i < fields.size(); i++) {
+            RecordBeanField field = fields.get(i);
+
+            if (i > 0 || leadingSeparator) {
+                literal.append(", ");
+            }
+
+            literal.append(field.name()).append("=").append(field.isString() ? "'" : "");
+
+            // StringBuilder.append(char[]) would append the characters rather than the array itself
+            String value = field.type().equals("char[]") ? "(java.lang.Object) " + field.name() : field.name();
+
+            appends.add(".append(\"" + literal + "\")");
+            appends.add(".append(" + value + ")");
+
+            literal = new StringBuilder(field.isString() ? "'" : "");
+        }
+
+        literal.append(suffix);
+
+        if (literal.length() > 0) {
+            appends.add(".append(\"" + literal + "\")");
+        }
+
+        return String.join("\n", appends);
+    }
+
+    /**
+     * A starting capacity for the toString buffer: the exact length of the literal text plus a typical length for
+     * each value, so that most beans never have to grow it.
+     */
+    private static int estimateToStringLength(RecordBean bean) {
+        int length = bean.name().length() + 2;
+
+        for (RecordBeanField field : bean.fields()) {
+            length += field.name().length() + 3 + estimateValueLength(field);
+
+            if (field.isString()) {
+                length += 2;
+            }
+        }
+
+        return length;
+    }
+
+    private static int estimateValueLength(RecordBeanField field) {
+        switch (field.type()) {
+            case "boolean":
+                return 5;
+            case "char":
+                return 1;
+            case "byte":
+                return 4;
+            case "short":
+                return 6;
+            case "int":
+                return 11;
+            case "long":
+                return 20;
+            case "float":
+                return 15;
+            case "double":
+                return 24;
+            case "java.lang.String":
+                return 16;
+            default:
+                return 32;
+        }
+    }
+
+    private String generateNewBuilderMethod(RecordBean bean) {
+        return "public static " + bean.builderQualifiedName() + " newBuilder() {\n" +
+                "return new " + bean.builderQualifiedName() + "();\n" +
+                "}";
+    }
+
+    private String generateBuilderClass(RecordBean bean) {
+        StringBuilder text = new StringBuilder("public static final class Builder {\n");
+
+        bean.fields().forEach(field -> text.append(generateBuilderField(field)).append("\n"));
+
+        bean.fields().forEach(field -> text.append("\n").append(generateBuilderMethod(bean, field)).append("\n"));
+
+        text.append("\n").append(generateBuildMethod(bean)).append("\n");
+
+        if (settings.reusableBuilder) {
+            text.append("\n").append(generateResetMethod(bean)).append("\n")
+                    .append("\n").append(generateFromMethod(bean)).append("\n");
+        }
+
+        if (settings.intern) {
+            text.append("\n")
+                    .append("public ").append(bean.qualifiedName()).append(" buildCanonical() {\n")
+                    .append("return ").append(bean.qualifiedName()).append(".intern(build());\n")
+                    .append("}\n");
+        }
+
+        return text.append("}").toString();
+    }
+
+    /**
+     * Clears every field back to its default without allocating, so one builder can build many beans.
+     */
+    private String generateResetMethod(RecordBean bean) {
+        StringBuilder text = new StringBuilder("public ").append(bean.builderQualifiedName()).append(" reset() {\n");
+
+        for (RecordBeanField field : bean.fields()) {
+            text.append("this.").append(field.name()).append(" = ").append(defaultValue(field)).append(";\n");
+        }
+
+        return text.append("return this;\n")
+                .append("}")
+                .toString();
+    }
+
+    private String generateFromMethod(RecordBean bean) {
+        StringBuilder text = new StringBuilder("public ").append(bean.builderQualifiedName()).append(" from(")
+                .append(bean.qualifiedName()).append(" bean) {\n");
+
+        for (RecordBeanField field : bean.fields()) {
+            text.append("this.").append(field.name()).append(" = bean.").append(field.name()).append(";\n");
+        }
+
+        return text.append("return this;\n")
+                .append("}")
+                .toString();
+    }
+
+    private static String defaultValue(RecordBeanField field) {
+        if (!field.isPrimitive()) {
+            return "null";
+        }
+
+        return field.type().equals("boolean") ? "false" : "0";
+    }
+
+    private String generateReusableBuilderField(RecordBean bean) {
+        return "private static final java.lang.ThreadLocal<" + bean.builderQualifiedName() + "> " +
+                REUSABLE_BUILDER_FIELD + " = java.lang.ThreadLocal.withInitial(" + bean.builderQualifiedName() +
+                "::new);";
+    }
+
+    /**
+     * A cleared builder owned by the calling thread. It is handed out again by the next call on the same thread, so
+     * it must not be kept, or passed to another thread, once the bean is built.
+     */
+    private String generateReusableBuilderMethod(RecordBean bean) {
+        return "public static " + bean.builderQualifiedName() + " reusableBuilder() {\n" +
+                "return " + REUSABLE_BUILDER_FIELD + ".get().reset();\n" +
+                "}";
+    }
+
+    private String generateBuilderField(RecordBeanField field) {
+        return "private " + field.type() + " " + field.name() + ";";
+    }
+
+    private String generateBuilderMethod(RecordBean bean, RecordBeanField field) {
+        return "public " + bean.builderQualifiedName() + " " + field.name() + "(" + field.type() + " val) {\n" +
+                field.name() + " = val;\n" +
+                "return this;\n" +
+                "}";
+    }
+
+    private String generateBuildMethod(RecordBean bean) {
+        if (usesBuilderConstructor(bean)) {
+            return "public " + bean.qualifiedName() + " build() {\n" +
+                    "return new " + bean.qualifiedName() + "(this);\n" +
+                    "}";
+        }
+
+        String fieldList = bean.fields().stream()
+                .map(RecordBeanField::name)
+                .collect(Collectors.joining(",\n"));
+
+        return "public " + bean.qualifiedName() + " build() {\n" +
+                "return new " + bean.qualifiedName() + "(" + fieldList + ");\n" +
+                "}";
+    }
+
+    private boolean usesDiffMask(RecordBean bean) {
+        return settings.diffMask && bean.fields().size() <= MAX_DIFF_FIELDS;
+    }
+
+    private boolean usesAppendTo(RecordBean bean) {
+        return settings.stringBuilderToString || isChunked(bean);
+    }
+
+    static boolean isChunked(RecordBean bean) {
+        return bean.fields().size() > MAX_FIELDS_PER_METHOD;
+    }
+
+    static boolean usesBuilderConstructor(RecordBean bean) {
+        int slots = 1;
+
+        for (RecordBeanField field : bean.fields()) {
+            slots += field.type().equals("long") || field.type().equals("double") ? 2 : 1;
+        }
+
+        return slots > MAX_PARAMETER_SLOTS;
+    }
+
+    static <T> List<List<T>> chunks(List<T> list) {
+        List<List<T>> chunks = new ArrayList<>();
+
+        for (int start = 0; start < list.size(); start += MAX_FIELDS_PER_METHOD) {
+            chunks.add(list.subList(start, Math.min(start + MAX_FIELDS_PER_METHOD, list.size())));
+        }
+
+        return chunks;
+    }
+
+    /**
+     * {@code base}, or {@code base} with a number appended if a field already has that name, for locals that must not
+     * shadow a field.
+     */
+    static String freeName(RecordBean bean, String base) {
+        String name = base;
+
+        for (int i = 2; hasField(bean, name); i++) {
+            name = base + i;
+        }
+
+        return name;
+    }
+
+    private static boolean hasField(RecordBean bean, String name) {
+        return bean.fields().stream()
+                .anyMatch(field -> field.name().equals(name));
+    }
+
+    private static String castedVariableName(RecordBean bean) {
+        String className = bean.name();
+        String name = className.substring(0, 1).toLowerCase() + className.substring(1);
+
+        return hasField(bean, name) ? "that" : name;
+    }
+}
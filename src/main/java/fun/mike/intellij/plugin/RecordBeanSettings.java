@@ -0,0 +1,158 @@
+package fun.mike.intellij.plugin;
+
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.util.xmlb.XmlSerializerUtil;
+import com.intellij.util.xmlb.annotations.Transient;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Per-project choices of how record beans are generated. Every option is off by default, which generates the same
+ * code as before the option existed.
+ */
+@State(name = "RecordBeanSettings", storages = @Storage("recordBean.xml"))
+public class RecordBeanSettings implements PersistentStateComponent<RecordBeanSettings> {
+    private final SimpleModificationTracker modificationTracker = new SimpleModificationTracker();
+
+    /**
+     * Generate {@code hashCode} as an unrolled {@code 31 * result + ...} sum instead of {@code Objects.hash}, which
+     * allocates an array and boxes primitives on every call.
+     */
+    public boolean unrolledHashCode = false;
+
+    /**
+     * Compare primitives with {@code ==} or {@code compare} and arrays by content in {@code equals}, cheapest
+     * comparisons first, instead of passing every field to {@code Objects.equals}.
+     */
+    public boolean primitiveEquals = false;
+
+    /**
+     * Compute {@code hashCode} once into a transient field, and use the cached hash codes to reject unequal instances
+     * early in {@code equals}. Only safe for beans whose fields are never changed after construction.
+     */
+    public boolean cachedHashCode = false;
+
+    /**
+     * Generate {@code toString} on a pre-sized {@code StringBuilder}, plus an {@code appendTo(StringBuilder)} that
+     * writes into a caller's buffer, instead of one long concatenation.
+     */
+    public boolean stringBuilderToString = false;
+
+    /**
+     * Generate a nested Jackson {@code Serializer} that writes the fields directly, and register it on the bean with
+     * {@code @JsonSerialize}.
+     */
+    public boolean jsonSerializer = false;
+
+    /**
+     * Generate a nested Jackson {@code Deserializer} that fills the {@code Builder} straight from the parser, and
+     * register it on the bean with {@code @JsonDeserialize}.
+     */
+    public boolean jsonDeserializer = false;
+
+    /**
+     * Generate {@code writeTo(DataOutput)} and {@code readFrom(DataInput)}, a compact binary form with a null bitmap
+     * and varint lengths. Only beans whose fields are all primitives, boxed primitives, strings or primitive arrays
+     * get them.
+     */
+    public boolean binaryCodec = false;
+
+    /**
+     * Generate a nested {@code Flyweight} that reads the fields of an encoded bean straight from a
+     * {@code ByteBuffer} at fixed offsets. Only beans whose fields are all primitives or boxed primitives get one.
+     */
+    public boolean flyweight = false;
+
+    /**
+     * Generate a nested {@code Columns} container that stores each field of many beans in an array of its own.
+     */
+    public boolean columns = false;
+
+    /**
+     * Generate a nested {@code Schema} describing each field with its name, type, index and typed accessors.
+     */
+    public boolean schema = false;
+
+    /**
+     * Generate a static {@code intern} backed by a weak canonical map, plus {@code Builder.buildCanonical()}, for beans
+     * that repeat across the heap.
+     */
+    public boolean intern = false;
+
+    /**
+     * Generate {@code reset()} and {@code from(bean)} on the {@code Builder}, plus a static {@code reusableBuilder()}
+     * that hands out a cleared builder owned by the calling thread.
+     */
+    public boolean reusableBuilder = false;
+
+    /**
+     * Generate a nested {@code Mutable} twin with the same fields, plain setters, {@code copyFrom(bean)} and
+     * {@code toImmutable()}.
+     */
+    public boolean mutable = false;
+
+    /**
+     * Generate {@code long diffMask(other)} with a bit per field set where the two beans differ, and a static
+     * {@code _BIT} constant for each field. Only beans with at most 64 fields get them.
+     */
+    public boolean diffMask = false;
+
+    /**
+     * Generate {@code forEachField(FieldVisitor)} with a nested {@code FieldVisitor} that has a callback per primitive
+     * kind, plus {@code toMap()}.
+     */
+    public boolean fieldVisitor = false;
+
+    /**
+     * Generate {@code fromResultSet(ResultSet, int[])}, which fills the {@code Builder} from a row by column index, and
+     * {@code columnIndexes(ResultSet)}, which resolves the indexes once per query from labels in lower snake case.
+     */
+    public boolean jdbcMapper = false;
+
+    /**
+     * Generate {@code parseCsv(CharSequence, int, int)}, which parses a comma-separated line into the {@code Builder}
+     * in place, and {@code writeCsv(Appendable)}. Only beans whose fields are all primitives, boxed primitives or
+     * strings get them.
+     */
+    public boolean csvCodec = false;
+
+    public static RecordBeanSettings getInstance(Project project) {
+        return project.getService(RecordBeanSettings.class);
+    }
+
+    /**
+     * A copy that is safe to read from other threads while the settings are edited.
+     */
+    public RecordBeanSettings copy() {
+        RecordBeanSettings copy = new RecordBeanSettings();
+        XmlSerializerUtil.copyBean(this, copy);
+        return copy;
+    }
+
+    /**
+     * Changes whenever the settings do, since every generated member may depend on them.
+     */
+    @Transient
+    public ModificationTracker getModificationTracker() {
+        return modificationTracker;
+    }
+
+    public void changed() {
+        modificationTracker.incModificationCount();
+    }
+
+    @Override
+    public RecordBeanSettings getState() {
+        return this;
+    }
+
+    @Override
+    public void loadState(@NotNull RecordBeanSettings state) {
+        XmlSerializerUtil.copyBean(state, this);
+        changed();
+    }
+}
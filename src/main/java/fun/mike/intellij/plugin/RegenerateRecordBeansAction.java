@@ -0,0 +1,241 @@
+package fun.mike.intellij.plugin;
+
+import com.intellij.analysis.AnalysisScope;
+import com.intellij.analysis.BaseAnalysisAction;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.SearchScope;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Regenerates every record bean in a scope chosen by the user.
+ * <p>
+ * Candidates are looked up in {@link RecordBeanIndex} one name at a time, or found by visiting the files of a local
+ * scope one file at a time, in read actions on a background thread. Their members are rendered in parallel with no
+ * lock held and compared with the classes in background read actions, which give way to any write action. Only the
+ * classes that differ are applied, in write actions of about {@value #WRITE_CHUNK_MILLIS}ms each so the IDE stays
+ * responsive in between.
+ */
+public class RegenerateRecordBeansAction extends BaseAnalysisAction {
+    private static final String TITLE = "Regenerate Record Beans";
+    private static final long WRITE_CHUNK_MILLIS = 100;
+
+    public RegenerateRecordBeansAction() {
+        super(TITLE, "Record Beans");
+    }
+
+    @Override
+    protected void analyze(@NotNull Project project, @NotNull AnalysisScope scope) {
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, TITLE, true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                regenerate(project, scope, indicator);
+            }
+        });
+    }
+
+    private static void regenerate(Project project, AnalysisScope scope, ProgressIndicator indicator) {
+        long start = System.nanoTime();
+
+        // Find candidates
+        indicator.setIndeterminate(true);
+        indicator.setText("Finding record beans");
+
+        List<Candidate> candidates = findCandidates(project, scope, indicator);
+
+        // Render
+        indicator.setText("Rendering " + candidates.size() + " record beans");
+
+        RecordBeanRenderer renderer = RecordBeanActionHandler.renderer(project);
+
+        List<String> renderedMembers = candidates.parallelStream()
+                .map(candidate -> {
+                    if (indicator.isCanceled()) {
+                        throw new ProcessCanceledException();
+                    }
+
+                    return renderer.render(candidate.bean);
+                })
+                .collect(Collectors.toList());
+
+        // Check
+        indicator.setIndeterminate(false);
+        indicator.setText("Checking " + candidates.size() + " record beans");
+
+        RecordBeanActionHandler handler = new RecordBeanActionHandler();
+
+        List<Integer> staleIndexes = new ArrayList<>();
+
+        for (int index = 0; index < candidates.size(); index++) {
+            indicator.setFraction((double) index / candidates.size());
+
+            Candidate candidate = candidates.get(index);
+            String members = renderedMembers.get(index);
+
+            boolean upToDate = readInSmartMode(project, indicator, () -> {
+                PsiClass rootClass = candidate.pointer.getElement();
+
+                // A class edited since it was rendered is rendered again when applied
+                return rootClass == null ||
+                        candidate.bean.equals(RecordBean.of(rootClass)) &&
+                                handler.isUpToDate(project, rootClass, candidate.bean, members);
+            });
+
+            if (!upToDate) {
+                staleIndexes.add(index);
+            }
+        }
+
+        // Apply
+        indicator.setText("Regenerating " + staleIndexes.size() + " record beans");
+
+        long chunkNanos = TimeUnit.MILLISECONDS.toNanos(WRITE_CHUNK_MILLIS);
+
+        int[] applied = {0};
+        int[] changed = {0};
+
+        while (applied[0] < staleIndexes.size()) {
+            indicator.checkCanceled();
+            indicator.setFraction((double) applied[0] / staleIndexes.size());
+
+            ApplicationManager.getApplication().invokeAndWait(() -> WriteCommandAction.runWriteCommandAction(
+                    project, TITLE, null, () -> {
+                        long chunkStart = System.nanoTime();
+
+                        // At least one class per chunk, then as many as fit in the time budget
+                        do {
+                            int index = staleIndexes.get(applied[0]++);
+                            PsiClass rootClass = candidates.get(index).pointer.getElement();
+
+                            if (rootClass == null) {
+                                continue;
+                            }
+
+                            // The class may have been edited since it was rendered
+                            RecordBean bean = RecordBean.of(rootClass);
+
+                            String members = bean.equals(candidates.get(index).bean) ?
+                                    renderedMembers.get(index) :
+                                    renderer.render(bean);
+
+                            if (handler.apply(project, rootClass, bean, members)) {
+                                changed[0]++;
+                            }
+                        } while (applied[0] < staleIndexes.size() && System.nanoTime() - chunkStart < chunkNanos);
+                    }));
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        String message = String.format("Checked %d record beans and regenerated %d in %.1fs (%.0f classes/s)",
+                                       candidates.size(),
+                                       changed[0],
+                                       seconds,
+                                       candidates.size() / Math.max(seconds, 0.001));
+
+        NotificationGroupManager.getInstance()
+                .getNotificationGroup("Record Bean")
+                .createNotification(message, NotificationType.INFORMATION)
+                .notify(project);
+    }
+
+    private static List<Candidate> findCandidates(Project project, AnalysisScope scope, ProgressIndicator indicator) {
+        SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+
+        SearchScope searchScope = scope.toSearchScope();
+
+        if (searchScope instanceof GlobalSearchScope) {
+            GlobalSearchScope globalScope = (GlobalSearchScope) searchScope;
+
+            List<String> qualifiedNames = readInSmartMode(project,
+                                                          indicator,
+                                                          () -> RecordBeanIndex.findRecordBeanNames(globalScope));
+
+            List<Candidate> candidates = new ArrayList<>();
+
+            // A read action per name, so a large scope never holds up a write action for long
+            for (String qualifiedName : qualifiedNames) {
+                candidates.addAll(readInSmartMode(
+                        project,
+                        indicator,
+                        () -> RecordBeanIndex.findRecordBeans(project, qualifiedName, globalScope).stream()
+                                .map(psiClass -> new Candidate(pointerManager.createSmartPsiElementPointer(psiClass),
+                                                               RecordBean.of(psiClass)))
+                                .collect(Collectors.toList())));
+            }
+
+            return candidates;
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+
+        // The scope runs the visitor under a read action, one file at a time
+        scope.accept(new JavaElementVisitor() {
+            @Override
+            public void visitJavaFile(PsiJavaFile file) {
+                indicator.checkCanceled();
+
+                for (PsiClass psiClass : file.getClasses()) {
+                    visitRecordBeans(psiClass);
+                }
+            }
+
+            private void visitRecordBeans(PsiClass psiClass) {
+                if (RecordBean.isRecordBean(psiClass)) {
+                    candidates.add(new Candidate(pointerManager.createSmartPsiElementPointer(psiClass),
+                                                 RecordBean.of(psiClass)));
+                }
+
+                for (PsiClass innerClass : psiClass.getInnerClasses()) {
+                    if (innerClass.hasModifierProperty(PsiModifier.STATIC)) {
+                        visitRecordBeans(innerClass);
+                    }
+                }
+            }
+        });
+
+        return candidates;
+    }
+
+    /**
+     * Runs {@code computation} on this thread once indexes are ready, in a read action that is cancelled and restarted
+     * whenever a write action is waiting.
+     */
+    private static <T> T readInSmartMode(Project project, ProgressIndicator indicator, Callable<T> computation) {
+        return ReadAction.nonBlocking(computation)
+                .inSmartMode(project)
+                .wrapProgress(indicator)
+                .executeSynchronously();
+    }
+
+    private static class Candidate {
+        private final SmartPsiElementPointer<PsiClass> pointer;
+        private final RecordBean bean;
+
+        private Candidate(SmartPsiElementPointer<PsiClass> pointer, RecordBean bean) {
+            this.pointer = pointer;
+            this.bean = bean;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package fun.mike.intellij.plugin;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Renders a nested {@code Schema}, a static description of a record bean's fields with typed accessors for reading
+ * them from a bean and setting them on its builder, so generic code can walk the fields without reflection.
+ */
+public class SchemaRenderer {
+    public String render(RecordBean bean) {
+        String beanName = bean.qualifiedName();
+        String builderName = bean.builderQualifiedName();
+        String propertyName = beanName + ".Schema.Property";
+
+        StringBuilder text = new StringBuilder("public static final class Schema {\n");
+
+        for (int index = 0; index < bean.fields().size(); index++) {
+            RecordBeanField field = bean.fields().get(index);
+            String valueType = valueType(field);
+
+            text.append("public static final ").append(propertyName).append("<").append(valueType).append("> ")
+                    .append(field.constantName()).append(" = new ").append(propertyName).append("<>(\"")
+                    .append(field.name()).append("\", ").append(field.erasure()).append(".class, ").append(index)
+                    .append(", bean -> bean.").append(field.name())
+                    .append(", (builder, value) -> builder.").append(field.name()).append("(value));\n");
+        }
+
+        String properties = bean.fields().stream()
+                .map(RecordBeanField::constantName)
+                .collect(Collectors.joining(",\n"));
+
+        text.append("\n")
+                .append("/**\n")
+                .append(" * Every property, in field order, so that {@code ").append(listName(bean))
+                .append(".get(i).index() == i}.\n")
+                .append(" */\n")
+                .append("public static final java.util.List<").append(propertyName).append("<?>> ")
+                .append(listName(bean)).append(" =\n")
+                .append("java.util.Collections.unmodifiableList(java.util.Arrays.asList(").append(properties)
+                .append("));\n")
+                .append("\n")
+                .append("private Schema() {\n")
+                .append("}\n")
+                .append("\n")
+                .append(generatePropertyClass(beanName, builderName))
+                .append("\n}");
+
+        return text.toString();
+    }
+
+    private static String generatePropertyClass(String beanName, String builderName) {
+        return "public static final class Property<V> {\n" +
+                "private final java.lang.String name;\n" +
+                "private final java.lang.Class<?> type;\n" +
+                "private final int index;\n" +
+                "private final java.util.function.Function<" + beanName + ", V> getter;\n" +
+                "private final java.util.function.BiConsumer<" + builderName + ", V> setter;\n" +
+                "\n" +
+                "private Property(java.lang.String name,\n" +
+                "java.lang.Class<?> type,\n" +
+                "int index,\n" +
+                "java.util.function.Function<" + beanName + ", V> getter,\n" +
+                "java.util.function.BiConsumer<" + builderName + ", V> setter) {\n" +
+                "this.name = name;\n" +
+                "this.type = type;\n" +
+                "this.index = index;\n" +
+                "this.getter = getter;\n" +
+                "this.setter = setter;\n" +
+                "}\n" +
+                "\n" +
+                "public java.lang.String name() {\n" +
+                "return name;\n" +
+                "}\n" +
+                "\n" +
+                "public java.lang.Class<?> type() {\n" +
+                "return type;\n" +
+                "}\n" +
+                "\n" +
+                "public int index() {\n" +
+                "return index;\n" +
+                "}\n" +
+                "\n" +
+                "public V get(" + beanName + " bean) {\n" +
+                "return getter.apply(bean);\n" +
+                "}\n" +
+                "\n" +
+                "public void set(" + builderName + " builder, V value) {\n" +
+                "setter.accept(builder, value);\n" +
+                "}\n" +
+                "\n" +
+                "@java.lang.Override\n" +
+                "public java.lang.String toString() {\n" +
+                "return name;\n" +
+                "}\n" +
+                "}";
+    }
+
+    /**
+     * Primitives are boxed, since a property's value is a type argument.
+     */
+    private static String valueType(RecordBeanField field) {
+        return field.isPrimitive() ? "java.lang." + field.wrapperName() : field.type();
+    }
+
+    /**
+     * {@code PROPERTIES}, or with an underscore appended if a field's constant already has that name.
+     */
+    private static String listName(RecordBean bean) {
+        List<String> constantNames = bean.fields().stream()
+                .map(RecordBeanField::constantName)
+                .collect(Collectors.toList());
+
+        String name = "PROPERTIES";
+
+        while (constantNames.contains(name)) {
+            name += "_";
+        }
+
+        return name;
+    }
+}
@@ -0,0 +1,53 @@
+package fun.mike.intellij.plugin;
+
+import java.util.Objects;
+
+/**
+ * A field to sort record beans by, and which way.
+ */
+public class SortKey {
+    private final RecordBeanField field;
+    private final boolean descending;
+
+    public SortKey(RecordBeanField field, boolean descending) {
+        this.field = field;
+        this.descending = descending;
+    }
+
+    public static SortKey ascending(RecordBeanField field) {
+        return new SortKey(field, false);
+    }
+
+    public static SortKey descending(RecordBeanField field) {
+        return new SortKey(field, true);
+    }
+
+    public RecordBeanField field() {
+        return field;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SortKey that = (SortKey) o;
+        return descending == that.descending &&
+                Objects.equals(field, that.field);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, descending);
+    }
+
+    @Override
+    public String toString() {
+        return "SortKey{" +
+                "field=" + field + ", " +
+                "descending=" + descending + "}";
+    }
+}
@@ -0,0 +1,83 @@
+package fun.mike.intellij.plugin;
+
+import com.intellij.codeInsight.generation.PsiFieldMember;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.CollectionListModel;
+import com.intellij.ui.SimpleListCellRenderer;
+import com.intellij.ui.ToolbarDecorator;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBList;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import java.awt.BorderLayout;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Lets the user move the chosen sort keys into the order they are compared in, which starts as field order, and
+ * choose which of them sort descending.
+ */
+class SortKeyOrderDialog extends DialogWrapper {
+    private final CollectionListModel<PsiFieldMember> keys;
+    private final Set<PsiFieldMember> descendingKeys = new HashSet<>();
+
+    SortKeyOrderDialog(Project project, List<PsiFieldMember> keys) {
+        super(project);
+        this.keys = new CollectionListModel<>(keys);
+
+        setTitle("Order Sort Keys");
+        init();
+    }
+
+    @Override
+    protected @Nullable JComponent createCenterPanel() {
+        JBList<PsiFieldMember> list = new JBList<>(keys);
+        list.setCellRenderer(SimpleListCellRenderer.create(
+                "", key -> key.getText() + (descendingKeys.contains(key) ? " (descending)" : "")));
+
+        // Shows and sets the direction of the selected key
+        JBCheckBox descending = new JBCheckBox("Descending");
+        list.addListSelectionListener(event -> {
+            PsiFieldMember key = list.getSelectedValue();
+
+            descending.setEnabled(key != null);
+            descending.setSelected(descendingKeys.contains(key));
+        });
+        descending.addActionListener(event -> {
+            PsiFieldMember key = list.getSelectedValue();
+
+            if (key != null && descending.isSelected()) {
+                descendingKeys.add(key);
+            } else if (key != null) {
+                descendingKeys.remove(key);
+            }
+
+            list.repaint();
+        });
+        list.setSelectedIndex(0);
+
+        // Only the up and down buttons, since the keys were chosen already
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(new JBLabel("Keys are compared from top to bottom:"), BorderLayout.NORTH);
+        panel.add(ToolbarDecorator.createDecorator(list)
+                          .disableAddAction()
+                          .disableRemoveAction()
+                          .createPanel(),
+                  BorderLayout.CENTER);
+        panel.add(descending, BorderLayout.SOUTH);
+
+        return panel;
+    }
+
+    List<SortKey> getKeys() {
+        return keys.getItems().stream()
+                .map(key -> new SortKey(RecordBeanField.of(key.getElement()), descendingKeys.contains(key)))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,74 @@
+package fun.mike.intellij.plugin;
+
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiIdentifier;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Flags record beans whose generated members no longer match their fields.
+ */
+public class StaleRecordBeanInspection extends AbstractBaseJavaLocalInspectionTool {
+    private static final RecordBeanActionHandler HANDLER = new RecordBeanActionHandler();
+
+    @Override
+    public @NotNull PsiElementVisitor buildVisitor(@NotNull ProblemsHolder holder, boolean isOnTheFly) {
+        return new JavaElementVisitor() {
+            @Override
+            public void visitClass(PsiClass aClass) {
+                PsiIdentifier nameIdentifier = aClass.getNameIdentifier();
+
+                if (nameIdentifier == null || !RecordBean.isRecordBean(aClass) || !isStale(aClass)) {
+                    return;
+                }
+
+                holder.registerProblem(nameIdentifier,
+                                       "Generated record bean members are out of date",
+                                       new RegenerateFix());
+            }
+        };
+    }
+
+    /**
+     * Rendering and comparing the generated members is the expensive part. The answer is cached until the class's file,
+     * the structure of Java classes elsewhere, which the members' types may resolve to, or the generator settings
+     * change. Edits to other files' method bodies can't affect it, so they leave it cached.
+     */
+    private static boolean isStale(PsiClass psiClass) {
+        Project project = psiClass.getProject();
+        ModificationTracker settingsTracker = RecordBeanSettings.getInstance(project).getModificationTracker();
+
+        return CachedValuesManager.getCachedValue(psiClass, () -> CachedValueProvider.Result.create(
+                !HANDLER.isUpToDate(project, psiClass),
+                psiClass.getContainingFile(),
+                PsiModificationTracker.getInstance(project).getJavaStructureModificationTracker(),
+                settingsTracker));
+    }
+
+    private static class RegenerateFix implements LocalQuickFix {
+        @Override
+        public @NotNull String getFamilyName() {
+            return "Regenerate record bean";
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            PsiClass rootClass = PsiTreeUtil.getParentOfType(descriptor.getPsiElement(), PsiClass.class);
+
+            if (rootClass != null) {
+                HANDLER.generate(project, rootClass);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package fun.mike.intellij.plugin;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compiles generated binary codecs and round-trips random beans through them.
+ */
+public class BinaryCodecRendererTest {
+    private static final List<String> TYPES = Arrays.asList(
+            "int", "long", "double", "float", "short", "byte", "boolean", "char",
+            "java.lang.Integer", "java.lang.Long", "java.lang.Double", "java.lang.Float", "java.lang.Short",
+            "java.lang.Byte", "java.lang.Boolean", "java.lang.Character", "java.lang.String",
+            "byte[]", "char[]", "int[]", "long[]", "double[]", "boolean[]");
+
+    private static final int ITERATIONS = 500;
+
+    @Test
+    public void roundTripsRandomBeans() throws Exception {
+        // 15 nullable fields, so the null bitmap takes two bytes
+        roundTripRandomBeans(GeneratedBeans.bean("Mixed", TYPES), new Random(1));
+    }
+
+    @Test
+    public void roundTripsRandomWideBeans() throws Exception {
+        List<String> types = new ArrayList<>();
+
+        for (int i = 0; i < 230; i++) {
+            types.add(TYPES.get(i % TYPES.size()));
+        }
+
+        // Split into three helpers, each with a null bitmap of its own
+        roundTripRandomBeans(GeneratedBeans.bean("Wide", types), new Random(2));
+    }
+
+    @Test
+    public void failsOnTruncatedInput() throws Exception {
+        RecordBean bean = GeneratedBeans.bean("Truncated", TYPES);
+        Class<?> beanClass = compile(bean);
+
+        byte[] bytes = write(randomBean(beanClass, bean, new Random(3)));
+
+        assertThrows(EOFException.class, () -> read(beanClass, Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    /**
+     * The codec should take less space than Java serialization, even when the class descriptor is only written once
+     * for many beans. Long strings cost about the same either way, so the margin depends mostly on the other fields.
+     */
+    @Test
+    public void isSmallerThanJavaSerialization(TestReporter reporter) throws Exception {
+        RecordBean bean = GeneratedBeans.bean("Sized", Arrays.asList(
+                "long", "int", "java.lang.String", "java.lang.String", "double", "boolean", "java.lang.Integer",
+                "java.lang.Long", "int[]", "java.lang.String"));
+        Class<?> beanClass = compile(bean);
+        Method writeTo = GeneratedBeans.method(beanClass, "writeTo");
+
+        Random random = new Random(4);
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+
+        try (DataOutputStream dataOutput = new DataOutputStream(binary);
+             ObjectOutputStream objectOutput = new ObjectOutputStream(serialized)) {
+            for (int i = 0; i < 1000; i++) {
+                Object value = randomBean(beanClass, bean, random);
+
+                GeneratedBeans.invoke(writeTo, value, dataOutput);
+                objectOutput.writeObject(value);
+            }
+        }
+
+        reporter.publishEntry("writeTo", binary.size() + " bytes for 1000 beans");
+        reporter.publishEntry("ObjectOutputStream", serialized.size() + " bytes for 1000 beans");
+
+        assertTrue(binary.size() < serialized.size(),
+                   binary.size() + " bytes with writeTo, " + serialized.size() + " with ObjectOutputStream");
+    }
+
+    private static void roundTripRandomBeans(RecordBean bean, Random random) throws Exception {
+        Class<?> beanClass = compile(bean);
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            Object value = randomBean(beanClass, bean, random);
+
+            assertEquals(value, read(beanClass, write(value)), "Iteration " + i);
+        }
+    }
+
+    private static Class<?> compile(RecordBean bean) {
+        RecordBeanSettings settings = new RecordBeanSettings();
+        settings.binaryCodec = true;
+        // Compares arrays by content
+        settings.primitiveEquals = true;
+
+        return GeneratedBeans.compile(bean, settings);
+    }
+
+    private static byte[] write(Object value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            GeneratedBeans.invoke(GeneratedBeans.method(value.getClass(), "writeTo"), value, out);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static Object read(Class<?> beanClass, byte[] bytes) throws Exception {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            Object value = GeneratedBeans.invokeStatic(beanClass, "readFrom", in);
+
+            assertEquals(-1, in.read(), "Bytes left over");
+
+            return value;
+        }
+    }
+
+    private static Object randomBean(Class<?> beanClass, RecordBean bean, Random random) throws Exception {
+        Map<String, Object> values = new LinkedHashMap<>();
+
+        for (RecordBeanField field : bean.fields()) {
+            boolean nullable = !field.isPrimitive();
+
+            // Nulls often enough that every bitmap bit is exercised both ways
+            values.put(field.name(), nullable && random.nextInt(3) == 0 ? null : randomValue(field.type(), random));
+        }
+
+        return GeneratedBeans.build(beanClass, values);
+    }
+
+    private static Object randomValue(String type, Random random) {
+        switch (type) {
+            case "int":
+            case "java.lang.Integer":
+                return random.nextBoolean() ? random.nextInt() : random.nextInt(10);
+            case "long":
+            case "java.lang.Long":
+                return random.nextLong();
+            case "double":
+            case "java.lang.Double":
+                return random.nextInt(20) == 0 ? Double.NaN : random.nextGaussian() * 1e6;
+            case "float":
+            case "java.lang.Float":
+                return random.nextInt(20) == 0 ? Float.NEGATIVE_INFINITY : random.nextFloat();
+            case "short":
+            case "java.lang.Short":
+                return (short) random.nextInt();
+            case "byte":
+            case "java.lang.Byte":
+                return (byte) random.nextInt();
+            case "boolean":
+            case "java.lang.Boolean":
+                return random.nextBoolean();
+            case "char":
+            case "java.lang.Character":
+                return (char) random.nextInt(Character.MIN_SURROGATE);
+            case "java.lang.String":
+                return randomString(random);
+            case "byte[]": {
+                byte[] array = new byte[random.nextInt(200)];
+                random.nextBytes(array);
+                return array;
+            }
+            case "char[]": {
+                char[] array = new char[random.nextInt(20)];
+                for (int i = 0; i < array.length; i++) array[i] = (char) random.nextInt(Character.MAX_VALUE + 1);
+                return array;
+            }
+            case "int[]":
+                return random.ints(random.nextInt(20)).toArray();
+            case "long[]":
+                return random.longs(random.nextInt(20)).toArray();
+            case "double[]":
+                return random.doubles(random.nextInt(20)).toArray();
+            case "boolean[]": {
+                boolean[] array = new boolean[random.nextInt(20)];
+                for (int i = 0; i < array.length; i++) array[i] = random.nextBoolean();
+                return array;
+            }
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    /**
+     * ASCII, other BMP characters and supplementary ones, but no lone surrogates, which UTF-8 can't represent.
+     */
+    private static String randomString(Random random) {
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(4) == 0 ? 200 + random.nextInt(200) : random.nextInt(12);
+
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    text.append((char) (' ' + random.nextInt(95)));
+                    break;
+                case 1:
+                    text.append((char) (0x80 + random.nextInt(Character.MIN_SURROGATE - 0x80)));
+                    break;
+                default:
+                    text.appendCodePoint(Character.MIN_SUPPLEMENTARY_CODE_POINT + random.nextInt(0x10000));
+            }
+        }
+
+        return text.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package fun.mike.intellij.plugin;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+/**
+ * Runs in an IDE test fixture, since the locator works on parsed files and cached values.
+ */
+public class ClassLocatorTest extends LightJavaCodeInsightFixtureTestCase {
+    private static final int NESTED_CLASSES = 530;
+
+    public void testFindsInnermostStaticOrTopLevelClass() {
+        PsiFile file = myFixture.configureByText("Outer.java", source(1));
+
+        assertEquals("Outer", locate(file, "int outerField").getName());
+        assertEquals("Nested0", locate(file, "int field0").getName());
+        // The innermost class is an inner class, so nothing is offered even though it is inside a static class
+        assertNull(locate(file, "int innerField0"));
+        assertEquals("Outer", locate(file, "int lastField").getName());
+    }
+
+    /**
+     * The Generate menu looks the class up on every update, so on a 10,000 line file a thousand lookups spread over
+     * the file, plus working out the class ranges again after a change, must stay well under a frame each.
+     */
+    public void testUpdatePathStaysWithinBudgetOnLargeFile() {
+        PsiFile file = myFixture.configureByText("Outer.java", source(NESTED_CLASSES));
+
+        assertTrue(file.getText().split("\n").length >= 10_000);
+
+        int length = file.getTextLength();
+
+        PlatformTestUtil.startPerformanceTest("locating classes in a 10,000 line file", 200, () -> {
+            for (int i = 0; i < 1000; i++) {
+                myFixture.getEditor().getCaretModel().moveToOffset((int) ((long) i * length / 1000));
+                ClassLocator.locateStaticOrTopLevelClass(myFixture.getEditor(), file);
+            }
+        })
+                // An edit before each attempt, so the class ranges are worked out afresh
+                .setup(() -> WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+                    myFixture.getEditor().getDocument().insertString(0, " ");
+                    PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+                }))
+                .assertTiming();
+    }
+
+    private PsiClass locate(PsiFile file, String text) {
+        myFixture.getEditor().getCaretModel().moveToOffset(file.getText().indexOf(text));
+
+        return ClassLocator.locateStaticOrTopLevelClass(myFixture.getEditor(), file);
+    }
+
+    /**
+     * A top-level class with {@code nestedClasses} static nested classes of 19 lines each, each with an inner class.
+     */
+    private static String source(int nestedClasses) {
+        StringBuilder text = new StringBuilder("public class Outer {\n")
+                .append("    private int outerField;\n");
+
+        for (int i = 0; i < nestedClasses; i++) {
+            text.append("\n")
+                    .append("    public static class Nested").append(i).append(" {\n")
+                    .append("        private int field").append(i).append(";\n")
+                    .append("\n")
+                    .append("        public int field").append(i).append("() {\n")
+                    .append("            return field").append(i).append(";\n")
+                    .append("        }\n")
+                    .append("\n")
+                    .append("        public class Inner").append(i).append(" {\n")
+                    .append("            private int innerField").append(i).append(";\n")
+                    .append("\n")
+                    .append("            public int sum(int value) {\n")
+                    .append("                int result = value;\n")
+                    .append("                result += innerField").append(i).append(";\n")
+                    .append("                result += field").append(i).append(";\n")
+                    .append("                return result;\n")
+                    .append("            }\n")
+                    .append("        }\n")
+                    .append("    }\n");
+        }
+
+        return text.append("\n")
+                .append("    private int lastField;\n")
+                .append("}\n")
+                .toString();
+    }
+}
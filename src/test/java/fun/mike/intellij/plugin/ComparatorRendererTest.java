@@ -0,0 +1,186 @@
+package fun.mike.intellij.plugin;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compiles generated comparators next to the {@code Comparator.comparing} chains they replace, and checks that both
+ * sort beans alike.
+ */
+public class ComparatorRendererTest {
+    private static final RecordBean BEAN = GeneratedBeans.bean("Sorted", Arrays.asList(
+            "int", "java.lang.String", "long", "double", "java.lang.Integer"));
+
+    private static final List<SortKey> NAME_THEN_ID_DESC = Arrays.asList(
+            SortKey.ascending(field(1)), SortKey.descending(field(0)));
+
+    private static final List<SortKey> ID_SCORE_DESC_COUNT = Arrays.asList(
+            SortKey.ascending(field(0)), SortKey.descending(field(3)), SortKey.ascending(field(4)));
+
+    private static final List<SortKey> COUNT_DESC = Collections.singletonList(SortKey.descending(field(4)));
+
+    private static final List<SortKey> TIME_NAME_DESC = Arrays.asList(
+            SortKey.ascending(field(2)), SortKey.descending(field(1)));
+
+    /**
+     * The chains a hand-written comparator would use for the same keys, nulls first before any reversal.
+     */
+    private static final String CHAINS =
+            "public static final java.util.Comparator<Sorted> NAME_THEN_ID_DESC_CHAIN =\n" +
+            "        java.util.Comparator.comparing(Sorted::f1,\n" +
+            "                java.util.Comparator.nullsFirst(java.util.Comparator.<String>naturalOrder()))\n" +
+            "        .thenComparing(java.util.Comparator.comparing(Sorted::f0).reversed());\n" +
+            "\n" +
+            "public static final java.util.Comparator<Sorted> ID_SCORE_DESC_COUNT_CHAIN =\n" +
+            "        java.util.Comparator.comparing(Sorted::f0)\n" +
+            "        .thenComparing(java.util.Comparator.comparing(Sorted::f3).reversed())\n" +
+            "        .thenComparing(Sorted::f4,\n" +
+            "                java.util.Comparator.nullsFirst(java.util.Comparator.<Integer>naturalOrder()));\n" +
+            "\n" +
+            "public static final java.util.Comparator<Sorted> COUNT_DESC_CHAIN =\n" +
+            "        java.util.Comparator.comparing(Sorted::f4,\n" +
+            "                java.util.Comparator.nullsFirst(java.util.Comparator.<Integer>naturalOrder()))\n" +
+            "        .reversed();\n" +
+            "\n" +
+            "public static final java.util.Comparator<Sorted> TIME_NAME_DESC_CHAIN =\n" +
+            "        java.util.Comparator.comparing(Sorted::f2)\n" +
+            "        .thenComparing(java.util.Comparator.comparing(Sorted::f1,\n" +
+            "                java.util.Comparator.nullsFirst(java.util.Comparator.<String>naturalOrder()))\n" +
+            "                .reversed());\n";
+
+    private static final int BEANS = 200_000;
+    private static final int WARM_UP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    @Test
+    public void sortsLikeComparingChains() throws Exception {
+        Class<?> beanClass = compile();
+        List<Object> beans = randomBeans(beanClass, 2000, new Random(1));
+
+        assertSortsAlike(beanClass, beans, NAME_THEN_ID_DESC, "NAME_THEN_ID_DESC_CHAIN");
+        assertSortsAlike(beanClass, beans, ID_SCORE_DESC_COUNT, "ID_SCORE_DESC_COUNT_CHAIN");
+        assertSortsAlike(beanClass, beans, COUNT_DESC, "COUNT_DESC_CHAIN");
+        assertSortsAlike(beanClass, beans, TIME_NAME_DESC, "TIME_NAME_DESC_CHAIN");
+    }
+
+    @Test
+    public void namesDescendingKeys() {
+        assertEquals("BY_F1_F0_DESC", ComparatorRenderer.constantName(NAME_THEN_ID_DESC));
+        assertEquals("BY_F0_F3_DESC_F4", ComparatorRenderer.constantName(ID_SCORE_DESC_COUNT));
+    }
+
+    /**
+     * Sorts a large list with the generated comparator and with the chain it replaces. The numbers are reported rather
+     * than asserted, since wall-clock time varies too much between machines.
+     */
+    @Test
+    public void reportsSortingTime(TestReporter reporter) throws Exception {
+        Class<?> beanClass = compile();
+        List<Object> beans = randomBeans(beanClass, BEANS, new Random(2));
+
+        Comparator<Object> generated = comparator(beanClass, ComparatorRenderer.constantName(ID_SCORE_DESC_COUNT));
+        Comparator<Object> chain = comparator(beanClass, "ID_SCORE_DESC_COUNT_CHAIN");
+
+        long generatedNanos = 0;
+        long chainNanos = 0;
+
+        // Alternating, so that warming up and garbage collection weigh on both alike
+        for (int run = 0; run < WARM_UP_RUNS + MEASURED_RUNS; run++) {
+            List<Object> sortedByGenerated = new ArrayList<>(beans);
+            List<Object> sortedByChain = new ArrayList<>(beans);
+
+            long start = System.nanoTime();
+            sortedByGenerated.sort(generated);
+            long generatedSorted = System.nanoTime();
+            sortedByChain.sort(chain);
+            long chainSorted = System.nanoTime();
+
+            if (run >= WARM_UP_RUNS) {
+                generatedNanos += generatedSorted - start;
+                chainNanos += chainSorted - generatedSorted;
+            }
+        }
+
+        reporter.publishEntry("beans", String.valueOf(BEANS));
+        reporter.publishEntry("generated", milliseconds(generatedNanos));
+        reporter.publishEntry("Comparator.comparing", milliseconds(chainNanos));
+    }
+
+    private static void assertSortsAlike(Class<?> beanClass, List<Object> beans, List<SortKey> keys, String chainName)
+            throws Exception {
+        Comparator<Object> generated = comparator(beanClass, ComparatorRenderer.constantName(keys));
+        Comparator<Object> chain = comparator(beanClass, chainName);
+
+        // The sort is stable, so beans with equal keys keep their order either way
+        List<Object> sortedByGenerated = new ArrayList<>(beans);
+        List<Object> sortedByChain = new ArrayList<>(beans);
+        sortedByGenerated.sort(generated);
+        sortedByChain.sort(chain);
+
+        assertEquals(sortedByChain, sortedByGenerated, chainName);
+
+        for (Object left : beans.subList(0, 200)) {
+            for (Object right : beans.subList(0, 200)) {
+                assertEquals(Integer.signum(chain.compare(left, right)),
+                             Integer.signum(generated.compare(left, right)),
+                             chainName + " comparing " + left + " to " + right);
+            }
+        }
+    }
+
+    private static Class<?> compile() {
+        ComparatorRenderer renderer = new ComparatorRenderer();
+
+        String comparators = renderer.render(BEAN, NAME_THEN_ID_DESC) + "\n" +
+                renderer.render(BEAN, ID_SCORE_DESC_COUNT) + "\n" +
+                renderer.render(BEAN, COUNT_DESC) + "\n" +
+                renderer.render(BEAN, TIME_NAME_DESC) + "\n";
+
+        return GeneratedBeans.compile(BEAN, new RecordBeanSettings(), comparators + CHAINS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparator<Object> comparator(Class<?> beanClass, String name) throws Exception {
+        return (Comparator<Object>) beanClass.getField(name).get(null);
+    }
+
+    /**
+     * Few distinct values per field, so that ties fall through to the next key, and nulls, NaN and signed zeros.
+     */
+    private static List<Object> randomBeans(Class<?> beanClass, int count, Random random) throws Exception {
+        List<Object> beans = new ArrayList<>();
+        double[] scores = {-1.5, -0.0, 0.0, 2.5, Double.NaN, Double.NEGATIVE_INFINITY};
+
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("f0", random.nextInt(5) - 2);
+            values.put("f1", random.nextInt(6) == 0 ? null : "name" + random.nextInt(4));
+            values.put("f2", random.nextBoolean() ? Long.MIN_VALUE : (long) random.nextInt(3));
+            values.put("f3", scores[random.nextInt(scores.length)]);
+            values.put("f4", random.nextInt(4) == 0 ? null : random.nextInt(3));
+
+            beans.add(GeneratedBeans.build(beanClass, values));
+        }
+
+        return beans;
+    }
+
+    private static RecordBeanField field(int index) {
+        return BEAN.fields().get(index);
+    }
+
+    private static String milliseconds(long nanos) {
+        return String.format("%.1fms per sort", nanos / 1e6 / MEASURED_RUNS);
+    }
+}
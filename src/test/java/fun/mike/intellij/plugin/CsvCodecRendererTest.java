@@ -0,0 +1,299 @@
+package fun.mike.intellij.plugin;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.lang.reflect.Method;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compiles generated CSV codecs, round-trips beans through them and feeds them malformed lines.
+ */
+public class CsvCodecRendererTest {
+    private static final List<String> TYPES = Arrays.asList(
+            "java.lang.String", "int", "long", "short", "byte", "boolean", "char", "double", "float",
+            "java.lang.Integer", "java.lang.Long", "java.lang.Boolean", "java.lang.Character", "java.lang.String");
+
+    private static final int LINES = 100_000;
+    private static final int WARM_UP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    /**
+     * Added to the {@code Loaded} bean: each loader returns the beans of every line. The split loader relies on the last
+     * field being the only one that is quoted, as hand-written loaders rely on knowing their files.
+     */
+    private static final String LOADERS =
+            "public static java.util.List<Loaded> loadCsv(java.util.List<String> lines) {\n" +
+            "    java.util.List<Loaded> beans = new java.util.ArrayList<>(lines.size());\n" +
+            "    for (String line : lines) {\n" +
+            "        beans.add(parseCsv(line));\n" +
+            "    }\n" +
+            "    return beans;\n" +
+            "}\n" +
+            "\n" +
+            "public static java.util.List<Loaded> loadSplit(java.util.List<String> lines) {\n" +
+            "    java.util.List<Loaded> beans = new java.util.ArrayList<>(lines.size());\n" +
+            "    for (String line : lines) {\n" +
+            "        int quote = line.indexOf('\"');\n" +
+            "        String[] columns = line.substring(0, quote - 1).split(\",\", -1);\n" +
+            "        Builder builder = newBuilder();\n" +
+            "        builder.f0(Long.parseLong(columns[0]));\n" +
+            "        builder.f1(Integer.parseInt(columns[1]));\n" +
+            "        builder.f2(columns[2].isEmpty() ? null : columns[2]);\n" +
+            "        builder.f3(Boolean.parseBoolean(columns[3]));\n" +
+            "        builder.f4(columns[4].isEmpty() ? null : Integer.valueOf(columns[4]));\n" +
+            "        builder.f5(Short.parseShort(columns[5]));\n" +
+            "        builder.f6(line.substring(quote + 1, line.length() - 1));\n" +
+            "        beans.add(builder.build());\n" +
+            "    }\n" +
+            "    return beans;\n" +
+            "}\n";
+
+    @Test
+    public void roundTripsAwkwardValues() throws Exception {
+        Class<?> beanClass = compile(GeneratedBeans.bean("Row", TYPES));
+
+        roundTrip(beanClass, "plain", 0, 0L, (short) 0, (byte) 0, false, 'a', 0.0, 0.0f, 0, 0L, false, 'b', "plain");
+        roundTrip(beanClass, "say \"hi\"", 1, 1L, (short) 1, (byte) 1, true, '"', 1.5, 1.5f, 1, 1L, true, ',', "\"");
+        roundTrip(beanClass, "a,b", -1, -1L, (short) -1, (byte) -1, true, ',', -1.5, -1.5f, -1, -1L, true, '\n',
+                  ",");
+        roundTrip(beanClass, "two\nlines", 7, 7L, (short) 7, (byte) 7, false, '\n', 7.0, 7.0f, null, null, null,
+                  null, "carriage\r\nreturn");
+        roundTrip(beanClass, null, 8, 8L, (short) 8, (byte) 8, false, '\r', 8.0, 8.0f, null, null, null, null, null);
+        roundTrip(beanClass, "", 9, 9L, (short) 9, (byte) 9, false, ' ', 9.0, 9.0f, 9, 9L, false, ' ', "");
+        roundTrip(beanClass, "\",\"", Integer.MIN_VALUE, Long.MIN_VALUE, Short.MIN_VALUE, Byte.MIN_VALUE, false,
+                  Character.MIN_VALUE, -Double.MAX_VALUE, -Float.MAX_VALUE, Integer.MIN_VALUE, Long.MIN_VALUE, false,
+                  '0', "min");
+        roundTrip(beanClass, "max", Integer.MAX_VALUE, Long.MAX_VALUE, Short.MAX_VALUE, Byte.MAX_VALUE, true,
+                  Character.MAX_VALUE, Double.MAX_VALUE, Float.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, true,
+                  '9', "\"\"");
+        roundTrip(beanClass, "tiny", 0, 0L, (short) 0, (byte) 0, false, 'x', Double.MIN_VALUE, Float.MIN_VALUE,
+                  0, 0L, false, 'x', "NaN");
+        roundTrip(beanClass, "NaN", 0, 0L, (short) 0, (byte) 0, false, 'x', Double.NaN, Float.NEGATIVE_INFINITY,
+                  0, 0L, false, 'x', "Infinity");
+    }
+
+    @Test
+    public void roundTripsRandomWideBeans() throws Exception {
+        List<String> types = new ArrayList<>();
+
+        for (int i = 0; i < 230; i++) {
+            types.add(TYPES.get(i % TYPES.size()));
+        }
+
+        // Split into parseCsvFields and writeCsvFields helpers
+        RecordBean bean = GeneratedBeans.bean("Wide", types);
+        Class<?> beanClass = compile(bean);
+        Random random = new Random(1);
+
+        for (int i = 0; i < 200; i++) {
+            Map<String, Object> values = new LinkedHashMap<>();
+
+            for (RecordBeanField field : bean.fields()) {
+                values.put(field.name(), randomValue(field.type(), random));
+            }
+
+            Object value = GeneratedBeans.build(beanClass, values);
+
+            assertEquals(value, parse(beanClass, write(value)), "Iteration " + i);
+        }
+    }
+
+    @Test
+    public void parsesSliceOfLargerBuffer() throws Exception {
+        Class<?> beanClass = compile(GeneratedBeans.bean("Row", TYPES));
+        Object value = build(beanClass, "sliced", 1, 2L, (short) 3, (byte) 4, true, 'c', 6.0, 7.0f, 8, 9L, true,
+                             'd', "x,y");
+
+        String line = write(value);
+        CharBuffer buffer = CharBuffer.wrap("before\n" + line + "\nafter");
+        Method parseCsv = beanClass.getMethod("parseCsv", CharSequence.class, int.class, int.class);
+
+        assertEquals(value, GeneratedBeans.invoke(parseCsv, null, buffer, 7, 7 + line.length()));
+    }
+
+    @Test
+    public void rejectsMalformedLines() throws Exception {
+        Class<?> beanClass = compile(GeneratedBeans.bean("Ints", Arrays.asList(
+                "int", "byte", "long", "char", "java.lang.Integer")));
+
+        assertEquals(build(beanClass, 1, (byte) 2, 3L, 'c', null), parse(beanClass, "1,2,3,c,"));
+
+        // Too few and too many fields
+        assertThrows(IllegalArgumentException.class, () -> parse(beanClass, "1,2,3,c"));
+        assertThrows(IllegalArgumentException.class, () -> parse(beanClass, "1,2,3,c,5,6"));
+        assertThrows(IllegalArgumentException.class, () -> parse(beanClass, ""));
+
+        // Not numbers
+        assertThrows(NumberFormatException.class, () -> parse(beanClass, ",2,3,c,5"));
+        assertThrows(NumberFormatException.class, () -> parse(beanClass, "-,2,3,c,5"));
+        assertThrows(NumberFormatException.class, () -> parse(beanClass, "1a,2,3,c,5"));
+        assertThrows(NumberFormatException.class, () -> parse(beanClass, "1,2,3.0,c,5"));
+        assertThrows(NumberFormatException.class, () -> parse(beanClass, "1,2,3,c,\"5\""));
+
+        // Out of range, just past each type's limits
+        assertThrows(NumberFormatException.class, () -> parse(beanClass, "2147483648,2,3,c,5"));
+        assertThrows(NumberFormatException.class, () -> parse(beanClass, "1,-129,3,c,5"));
+        assertThrows(NumberFormatException.class, () -> parse(beanClass, "1,2,9223372036854775808,c,5"));
+        assertThrows(NumberFormatException.class, () -> parse(beanClass, "1,2,-9223372036854775809,c,5"));
+
+        // A char field with no character or more than one
+        assertThrows(IllegalArgumentException.class, () -> parse(beanClass, "1,2,3,,5"));
+        assertThrows(IllegalArgumentException.class, () -> parse(beanClass, "1,2,3,cd,5"));
+    }
+
+    /**
+     * Loads a large generated file with {@code parseCsv}, and with {@code String.split} and the JDK's parsers as
+     * hand-written loaders do. Both loaders are compiled into the bean and build every bean, so neither pays for
+     * reflection. The numbers are reported rather than asserted, since wall-clock time varies too much between
+     * machines.
+     */
+    @Test
+    public void reportsParsingThroughput(TestReporter reporter) throws Exception {
+        RecordBean bean = GeneratedBeans.bean("Loaded", Arrays.asList(
+                "long", "int", "java.lang.String", "boolean", "java.lang.Integer", "short", "java.lang.String"));
+
+        RecordBeanSettings settings = new RecordBeanSettings();
+        settings.csvCodec = true;
+
+        Class<?> beanClass = GeneratedBeans.compile(bean, settings, LOADERS);
+
+        Random random = new Random(2);
+        List<String> lines = new ArrayList<>();
+        long characters = 0;
+
+        for (int i = 0; i < LINES; i++) {
+            String line = write(build(beanClass, random.nextLong(), random.nextInt(), "name" + random.nextInt(1000),
+                                      random.nextBoolean(), random.nextBoolean() ? null : random.nextInt(100),
+                                      (short) random.nextInt(), "description, " + i));
+
+            lines.add(line);
+            characters += line.length() + 1;
+        }
+
+        Method loadCsv = GeneratedBeans.method(beanClass, "loadCsv");
+        Method loadSplit = GeneratedBeans.method(beanClass, "loadSplit");
+
+        // Both loaders must agree before their speed means anything
+        assertEquals(GeneratedBeans.invoke(loadCsv, null, lines), GeneratedBeans.invoke(loadSplit, null, lines));
+
+        long parseCsvNanos = 0;
+        long splitNanos = 0;
+
+        // Alternating, so that warming up and garbage collection weigh on both alike
+        for (int run = 0; run < WARM_UP_RUNS + MEASURED_RUNS; run++) {
+            long start = System.nanoTime();
+            GeneratedBeans.invoke(loadCsv, null, lines);
+            long parsed = System.nanoTime();
+            GeneratedBeans.invoke(loadSplit, null, lines);
+            long split = System.nanoTime();
+
+            if (run >= WARM_UP_RUNS) {
+                parseCsvNanos += parsed - start;
+                splitNanos += split - parsed;
+            }
+        }
+
+        reporter.publishEntry("file", LINES + " lines, " + characters + " characters");
+        reporter.publishEntry("parseCsv", linesPerSecond(parseCsvNanos));
+        reporter.publishEntry("String.split", linesPerSecond(splitNanos));
+    }
+
+    private static String linesPerSecond(long nanos) {
+        return String.format("%.0f lines/s", LINES * MEASURED_RUNS / (nanos / 1e9));
+    }
+
+    private static Class<?> compile(RecordBean bean) {
+        RecordBeanSettings settings = new RecordBeanSettings();
+        settings.csvCodec = true;
+        // Compares floating point fields bit for bit, so NaN round-trips
+        settings.primitiveEquals = true;
+
+        return GeneratedBeans.compile(bean, settings);
+    }
+
+    private static void roundTrip(Class<?> beanClass, Object... values) throws Exception {
+        Object value = build(beanClass, values);
+        String line = write(value);
+
+        assertEquals(value, parse(beanClass, line), line);
+    }
+
+    private static Object build(Class<?> beanClass, Object... values) throws Exception {
+        Map<String, Object> byName = new LinkedHashMap<>();
+
+        for (int i = 0; i < values.length; i++) {
+            byName.put("f" + i, values[i]);
+        }
+
+        return GeneratedBeans.build(beanClass, byName);
+    }
+
+    private static String write(Object value) throws Exception {
+        StringBuilder line = new StringBuilder();
+
+        GeneratedBeans.invoke(GeneratedBeans.method(value.getClass(), "writeCsv"), value, line);
+
+        return line.toString();
+    }
+
+    private static Object parse(Class<?> beanClass, String line) throws Exception {
+        return GeneratedBeans.invoke(beanClass.getMethod("parseCsv", CharSequence.class), null, line);
+    }
+
+    private static Object randomValue(String type, Random random) {
+        switch (type) {
+            case "int":
+                return random.nextInt();
+            case "long":
+                return random.nextLong();
+            case "short":
+                return (short) random.nextInt();
+            case "byte":
+                return (byte) random.nextInt();
+            case "boolean":
+                return random.nextBoolean();
+            case "char":
+                return (char) random.nextInt(Character.MIN_SURROGATE);
+            case "double":
+                return random.nextGaussian() * 1e6;
+            case "float":
+                return random.nextFloat();
+            case "java.lang.Integer":
+                return random.nextInt(3) == 0 ? null : random.nextInt();
+            case "java.lang.Long":
+                return random.nextInt(3) == 0 ? null : random.nextLong();
+            case "java.lang.Boolean":
+                return random.nextInt(3) == 0 ? null : random.nextBoolean();
+            case "java.lang.Character":
+                return random.nextInt(3) == 0 ? null : ",\"\n x".charAt(random.nextInt(5));
+            case "java.lang.String":
+                return random.nextInt(3) == 0 ? null : randomString(random);
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    /**
+     * Mostly the characters that need quoting, so quoted and plain fields are both common.
+     */
+    private static String randomString(Random random) {
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(8);
+
+        for (int i = 0; i < length; i++) {
+            text.append(",\"\r\n ab".charAt(random.nextInt(7)));
+        }
+
+        return text.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package fun.mike.intellij.plugin;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compiles generated field visitors and checks what {@code toMap()} returns.
+ */
+public class FieldVisitorRendererTest {
+    @Test
+    public void toMapKeepsEachFieldsType() throws Exception {
+        RecordBean bean = GeneratedBeans.bean("Visited", Arrays.asList(
+                "boolean", "char", "byte", "short", "int", "long", "float", "double", "java.lang.String"));
+
+        RecordBeanSettings settings = new RecordBeanSettings();
+        settings.fieldVisitor = true;
+
+        Class<?> beanClass = GeneratedBeans.compile(bean, settings);
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("f0", true);
+        values.put("f1", 'c');
+        values.put("f2", (byte) 2);
+        values.put("f3", (short) 3);
+        values.put("f4", 4);
+        values.put("f5", 5L);
+        values.put("f6", 6.0f);
+        values.put("f7", 7.0);
+        values.put("f8", "eight");
+
+        Object value = GeneratedBeans.build(beanClass, values);
+
+        // Equal maps would still allow an Integer for a byte field, so the types are compared as well
+        Map<?, ?> map = (Map<?, ?>) GeneratedBeans.invoke(GeneratedBeans.method(beanClass, "toMap"), value);
+
+        assertEquals(values, map);
+
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            assertEquals(entry.getValue().getClass(), map.get(entry.getKey()).getClass(), entry.getKey());
+        }
+    }
+
+    @Test
+    public void visitsEveryFieldOfWideBeansInOrder() throws Exception {
+        List<String> types = new ArrayList<>();
+        Map<String, Object> values = new LinkedHashMap<>();
+
+        for (int i = 0; i < 250; i++) {
+            types.add(i % 2 == 0 ? "short" : "java.lang.String");
+            values.put("f" + i, i % 2 == 0 ? (Object) (short) i : "value " + i);
+        }
+
+        RecordBeanSettings settings = new RecordBeanSettings();
+        settings.fieldVisitor = true;
+
+        Class<?> beanClass = GeneratedBeans.compile(GeneratedBeans.bean("Wide", types), settings);
+        Object value = GeneratedBeans.build(beanClass, values);
+
+        Map<?, ?> map = (Map<?, ?>) GeneratedBeans.invoke(GeneratedBeans.method(beanClass, "toMap"), value);
+
+        assertEquals(values, map);
+        assertEquals(new ArrayList<>(values.keySet()), new ArrayList<>(map.keySet()));
+    }
+}
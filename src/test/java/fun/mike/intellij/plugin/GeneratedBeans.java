@@ -0,0 +1,190 @@
+package fun.mike.intellij.plugin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Renders record beans into complete classes and compiles them, so generated code can be run in tests without an IDE.
+ */
+final class GeneratedBeans {
+    static final String PACKAGE = "sample";
+
+    private GeneratedBeans() {}
+
+    /**
+     * A bean named {@code name} in {@link #PACKAGE} with a field of each of {@code types}, named {@code f0},
+     * {@code f1} and so on.
+     */
+    static RecordBean bean(String name, List<String> types) {
+        List<RecordBeanField> fields = new ArrayList<>();
+
+        for (int i = 0; i < types.size(); i++) {
+            fields.add(new RecordBeanField("f" + i, types.get(i)));
+        }
+
+        return new RecordBean(name, PACKAGE + "." + name, fields);
+    }
+
+    /**
+     * Renders {@code bean} with {@code settings} into a serializable class with its fields and compiles it.
+     */
+    static Class<?> compile(RecordBean bean, RecordBeanSettings settings) {
+        return compile(bean, settings, "");
+    }
+
+    /**
+     * Like {@link #compile(RecordBean, RecordBeanSettings)}, with {@code members} added to the class, so a test can
+     * call generated code directly rather than through reflection.
+     */
+    static Class<?> compile(RecordBean bean, RecordBeanSettings settings, String members) {
+        String fields = bean.fields().stream()
+                .map(field -> "private final " + field.type() + " " + field.name() + ";\n")
+                .collect(Collectors.joining());
+
+        String source = "package " + PACKAGE + ";\n" +
+                "\n" +
+                "public class " + bean.name() + " implements java.io.Serializable {\n" +
+                fields +
+                "\n" +
+                new RecordBeanRenderer(settings).render(bean) + "\n" +
+                members +
+                "}\n";
+
+        return compile(bean.qualifiedName(), source);
+    }
+
+    /**
+     * Compiles the source of the class {@code qualifiedName} in {@link #PACKAGE}.
+     */
+    static Class<?> compile(String qualifiedName, String source) {
+        String name = qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+
+        try {
+            Path directory = Files.createTempDirectory("record-bean");
+            Path sourceFile = directory.resolve(PACKAGE).resolve(name + ".java");
+
+            Files.createDirectories(sourceFile.getParent());
+            Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+
+            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+            try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics,
+                                                                                      null,
+                                                                                      StandardCharsets.UTF_8)) {
+                List<String> options = Arrays.asList("-d", directory.toString(), "-classpath", classpath());
+
+                boolean compiled = compiler.getTask(null,
+                                                    fileManager,
+                                                    diagnostics,
+                                                    options,
+                                                    null,
+                                                    fileManager.getJavaFileObjects(sourceFile.toFile()))
+                        .call();
+
+                if (!compiled) {
+                    String errors = diagnostics.getDiagnostics().stream()
+                            .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                            .map(diagnostic -> diagnostic.getLineNumber() + ": " + diagnostic.getMessage(null))
+                            .collect(Collectors.joining("\n"));
+
+                    throw new AssertionError("Generated code doesn't compile:\n" + errors + "\n\n" + source);
+                }
+            }
+
+            URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()},
+                                                            GeneratedBeans.class.getClassLoader());
+
+            return classLoader.loadClass(qualifiedName);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Builds an instance of a compiled bean through its {@code Builder}, with the values by field name.
+     */
+    static Object build(Class<?> beanClass, Map<String, Object> values) throws Exception {
+        Object builder = invokeStatic(beanClass, "newBuilder");
+
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Method setter = Arrays.stream(builder.getClass().getMethods())
+                    .filter(method -> method.getName().equals(entry.getKey()) && method.getParameterCount() == 1)
+                    .findFirst()
+                    .orElseThrow(() -> new AssertionError("No builder method for " + entry.getKey()));
+
+            invoke(setter, builder, entry.getValue());
+        }
+
+        return invoke(method(builder.getClass(), "build"), builder);
+    }
+
+    static Object invokeStatic(Class<?> beanClass, String name, Object... arguments) throws Exception {
+        return invoke(method(beanClass, name), null, arguments);
+    }
+
+    /**
+     * Calls a generated method, rethrowing whatever it throws.
+     */
+    static Object invoke(Method method, Object target, Object... arguments) throws Exception {
+        try {
+            return method.invoke(target, arguments);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+
+            throw (Exception) e.getCause();
+        }
+    }
+
+    /**
+     * The only public method of {@code type} named {@code name}.
+     */
+    static Method method(Class<?> type, String name) {
+        List<Method> methods = Arrays.stream(type.getMethods())
+                .filter(method -> method.getName().equals(name))
+                .collect(Collectors.toList());
+
+        if (methods.size() != 1) {
+            throw new AssertionError("Expected one method named " + name + " in " + type + " but found " + methods);
+        }
+
+        return methods.get(0);
+    }
+
+    /**
+     * The test classpath, plus the Jackson annotations every generated getter carries.
+     */
+    private static String classpath() {
+        try {
+            String jackson = new File(JsonProperty.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                    .getPath();
+
+            return System.getProperty("java.class.path") + File.pathSeparator + jackson;
+        } catch (URISyntaxException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
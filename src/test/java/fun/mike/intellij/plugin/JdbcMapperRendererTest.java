@@ -0,0 +1,215 @@
+package fun.mike.intellij.plugin;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compiles generated JDBC mappers and runs them against a stub {@link ResultSet} over a single row.
+ */
+public class JdbcMapperRendererTest {
+    private static final List<String> TYPES = Arrays.asList(
+            "int", "long", "double", "float", "short", "byte", "boolean", "char",
+            "java.lang.Integer", "java.lang.Long", "java.lang.Double", "java.lang.Boolean", "java.lang.Character",
+            "java.lang.String", "byte[]", "java.math.BigDecimal");
+
+    private static final List<Object> VALUES = Arrays.asList(
+            -7, 1L << 40, 2.5, 1.5f, (short) 300, (byte) -3, true, 'x',
+            42, -9L, 0.25, false, 'y',
+            "text", new byte[]{1, 2, 3}, new BigDecimal("12.34"));
+
+    @Test
+    public void readsEveryTypeByColumnIndex() throws Exception {
+        RecordBean bean = bean(TYPES);
+        Class<?> beanClass = compile(bean);
+
+        Map<String, Object> values = valuesByName(bean, VALUES);
+
+        // Columns in a different order from the fields, to show the indexes are looked up
+        Map<String, Object> row = new LinkedHashMap<>();
+        List<RecordBeanField> reversed = new ArrayList<>(bean.fields());
+        Collections.reverse(reversed);
+        reversed.forEach(field -> row.put(label(field), values.get(field.name())));
+
+        ResultSet resultSet = resultSet(row);
+        int[] columnIndexes = (int[]) GeneratedBeans.invokeStatic(beanClass, "columnIndexes", resultSet);
+
+        assertEquals(TYPES.size(), columnIndexes[0]);
+        assertEquals(GeneratedBeans.build(beanClass, values),
+                     GeneratedBeans.invokeStatic(beanClass, "fromResultSet", resultSet, columnIndexes));
+    }
+
+    @Test
+    public void readsSqlNullAsNullOrZero() throws Exception {
+        RecordBean bean = bean(TYPES);
+        Class<?> beanClass = compile(bean);
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        bean.fields().forEach(field -> row.put(label(field), null));
+
+        ResultSet resultSet = resultSet(row);
+        Object read = GeneratedBeans.invokeStatic(beanClass,
+                                                  "fromResultSet",
+                                                  resultSet,
+                                                  GeneratedBeans.invokeStatic(beanClass, "columnIndexes", resultSet));
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("f0", 0);
+        expected.put("f1", 0L);
+        expected.put("f2", 0.0);
+        expected.put("f3", 0.0f);
+        expected.put("f4", (short) 0);
+        expected.put("f5", (byte) 0);
+        expected.put("f6", false);
+        expected.put("f7", '\0');
+
+        assertEquals(GeneratedBeans.build(beanClass, expected), read);
+    }
+
+    @Test
+    public void splitsWideBeansAcrossHelpers() throws Exception {
+        List<String> types = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+
+        for (int i = 0; i < 250; i++) {
+            types.add(i % 2 == 0 ? "long" : "java.lang.String");
+            values.add(i % 2 == 0 ? (Object) (long) i : i % 3 == 0 ? null : "value " + i);
+        }
+
+        RecordBean bean = bean(types);
+        Class<?> beanClass = compile(bean);
+
+        Map<String, Object> byName = valuesByName(bean, values);
+        Map<String, Object> row = new LinkedHashMap<>();
+        bean.fields().forEach(field -> row.put(label(field), byName.get(field.name())));
+
+        ResultSet resultSet = resultSet(row);
+        Object read = GeneratedBeans.invokeStatic(beanClass,
+                                                  "fromResultSet",
+                                                  resultSet,
+                                                  GeneratedBeans.invokeStatic(beanClass, "columnIndexes", resultSet));
+
+        assertEquals(GeneratedBeans.build(beanClass, byName), read);
+    }
+
+    @Test
+    public void resolvesLabelsInLowerSnakeCase() throws Exception {
+        RecordBean bean = new RecordBean("Person",
+                                         GeneratedBeans.PACKAGE + ".Person",
+                                         Arrays.asList(new RecordBeanField("firstName", "java.lang.String"),
+                                                       new RecordBeanField("accountId2", "long")));
+        Class<?> beanClass = compile(bean);
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("account_id2", 5L);
+        row.put("first_name", "Ada");
+
+        assertArrayEquals(new int[]{2, 1},
+                          (int[]) GeneratedBeans.invokeStatic(beanClass, "columnIndexes", resultSet(row)));
+    }
+
+    @Test
+    public void failsWhenAColumnIsMissing() {
+        Class<?> beanClass = compile(bean(Arrays.asList("int", "java.lang.String")));
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("f0", 1);
+
+        assertThrows(SQLException.class,
+                     () -> GeneratedBeans.invokeStatic(beanClass, "columnIndexes", resultSet(row)));
+    }
+
+    private static RecordBean bean(List<String> types) {
+        return GeneratedBeans.bean("Row", types);
+    }
+
+    private static Class<?> compile(RecordBean bean) {
+        RecordBeanSettings settings = new RecordBeanSettings();
+        settings.jdbcMapper = true;
+        // Compares the byte array by content
+        settings.primitiveEquals = true;
+
+        return GeneratedBeans.compile(bean, settings);
+    }
+
+    private static Map<String, Object> valuesByName(RecordBean bean, List<Object> values) {
+        Map<String, Object> valuesByName = new LinkedHashMap<>();
+
+        for (int i = 0; i < values.size(); i++) {
+            valuesByName.put(bean.fields().get(i).name(), values.get(i));
+        }
+
+        return valuesByName;
+    }
+
+    private static String label(RecordBeanField field) {
+        return field.constantName().toLowerCase();
+    }
+
+    /**
+     * A result set positioned on one row with the given values by column label. The getters convert like a driver
+     * would, and read SQL NULL as zero or false.
+     */
+    private static ResultSet resultSet(Map<String, Object> row) {
+        List<String> labels = new ArrayList<>(row.keySet());
+        boolean[] wasNull = {false};
+
+        return (ResultSet) Proxy.newProxyInstance(
+                JdbcMapperRendererTest.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "findColumn":
+                            int index = labels.indexOf(((String) arguments[0]).toLowerCase());
+
+                            if (index < 0) {
+                                throw new SQLException("No column " + arguments[0]);
+                            }
+
+                            return index + 1;
+                        case "wasNull":
+                            return wasNull[0];
+                        default:
+                            Object value = row.get(labels.get((Integer) arguments[0] - 1));
+                            wasNull[0] = value == null;
+                            return convert(value, method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object convert(Object value, Class<?> type) {
+        if (type == boolean.class) {
+            return value != null && (Boolean) value;
+        }
+
+        if (type.isPrimitive()) {
+            Number number = value == null ? 0 : value instanceof Character ? (int) (Character) value : (Number) value;
+
+            if (type == int.class) return number.intValue();
+            if (type == long.class) return number.longValue();
+            if (type == double.class) return number.doubleValue();
+            if (type == float.class) return number.floatValue();
+            if (type == short.class) return number.shortValue();
+            if (type == byte.class) return number.byteValue();
+        }
+
+        if (type == String.class) {
+            return value == null ? null : value.toString();
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,170 @@
+package fun.mike.intellij.plugin;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+import java.util.function.Consumer;
+
+/**
+ * Runs in an IDE test fixture, since the handler edits parsed classes.
+ */
+public class RecordBeanActionHandlerTest extends LightJavaCodeInsightFixtureTestCase {
+    private static final Logger LOG = Logger.getInstance(RecordBeanActionHandlerTest.class);
+
+    private static final String[] TYPES = {"int", "long", "double", "boolean", "String", "Integer", "byte[]"};
+
+    private static final int FIELDS = 100;
+    private static final int WARM_UP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    private final RecordBeanActionHandler handler = new RecordBeanActionHandler();
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            // The project, and so its settings, is shared between tests
+            RecordBeanSettings.getInstance(getProject()).loadState(new RecordBeanSettings());
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testGenerateLeavesClassUpToDate() {
+        PsiClass rootClass = configureBean("Bean");
+
+        generate(rootClass);
+
+        assertTrue(handler.isUpToDate(getProject(), rootClass));
+        assertNotNull(rootClass.findInnerClassByName("Builder", false));
+    }
+
+    public void testKeepsHandWrittenNestedClassThatSharesAGeneratedName() {
+        PsiClass rootClass = configureClass("Bean", "    private final int id;\n" +
+                "\n" +
+                "    static class Schema {\n" +
+                "        int version;\n" +
+                "    }\n");
+
+        generate(rootClass);
+
+        PsiClass schema = rootClass.findInnerClassByName("Schema", false);
+
+        assertNotNull(schema);
+        assertNotNull(schema.findFieldByName("version", false));
+    }
+
+    public void testRemovesGeneratedNestedClassOnceItsOptionIsOff() {
+        PsiClass rootClass = configureClass("Bean", "    private final int id;\n" +
+                "    private final String name;\n");
+
+        RecordBeanSettings settings = RecordBeanSettings.getInstance(getProject());
+        settings.schema = true;
+        settings.mutable = true;
+        generate(rootClass);
+
+        assertNotNull(rootClass.findInnerClassByName("Schema", false));
+        assertNotNull(rootClass.findInnerClassByName("Mutable", false));
+
+        settings.schema = false;
+        settings.mutable = false;
+        generate(rootClass);
+
+        assertNull(rootClass.findInnerClassByName("Schema", false));
+        assertNull(rootClass.findInnerClassByName("Mutable", false));
+        assertTrue(handler.isUpToDate(getProject(), rootClass));
+    }
+
+    /**
+     * The annotations that register the Jackson codecs go with them, since they would point at classes that no longer
+     * exist.
+     */
+    public void testBeanStillCompilesOnceJacksonCodecsAreOff() {
+        PsiClass rootClass = configureClass("Bean", "    private final int id;\n" +
+                "    private final String name;\n");
+
+        RecordBeanSettings settings = RecordBeanSettings.getInstance(getProject());
+        settings.jsonSerializer = true;
+        settings.jsonDeserializer = true;
+        generate(rootClass);
+
+        assertNotNull(rootClass.findInnerClassByName("Serializer", false));
+        assertNotNull(rootClass.getModifierList().findAnnotation(JacksonCodecRenderer.JSON_SERIALIZE_ANNOTATION));
+
+        settings.jsonSerializer = false;
+        settings.jsonDeserializer = false;
+        generate(rootClass);
+
+        assertNull(rootClass.findInnerClassByName("Serializer", false));
+        assertNull(rootClass.findInnerClassByName("Deserializer", false));
+        assertNull(rootClass.getModifierList().findAnnotation(JacksonCodecRenderer.JSON_SERIALIZE_ANNOTATION));
+        assertNull(rootClass.getModifierList().findAnnotation(JacksonCodecRenderer.JSON_DESERIALIZE_ANNOTATION));
+        assertTrue(handler.isUpToDate(getProject(), rootClass));
+
+        // Only the Jackson annotations are on the classpath, so a leftover @JsonSerialize wouldn't compile either
+        GeneratedBeans.compile("sample.Bean", rootClass.getContainingFile().getText());
+    }
+
+    /**
+     * Times generating by parsing every member at once and splicing them in with one change against the way generation
+     * used to work. The times are logged rather than asserted, since wall-clock time varies too much between machines.
+     */
+    public void testTimesGenerateAgainstElementByElement() {
+        long singleParseNanos = 0;
+        long elementByElementNanos = 0;
+
+        // Alternating, so that warming up and garbage collection weigh on both alike
+        for (int run = 0; run < WARM_UP_RUNS + MEASURED_RUNS; run++) {
+            long singleParse = time("SingleParse" + run, rootClass -> handler.generate(getProject(), rootClass));
+            long elementByElement = time("ElementByElement" + run,
+                                         rootClass -> ElementByElementGenerator.generate(getProject(), rootClass));
+
+            if (run >= WARM_UP_RUNS) {
+                singleParseNanos += singleParse;
+                elementByElementNanos += elementByElement;
+            }
+        }
+
+        LOG.info(String.format("Generating %d fields, average of %d runs: %.1fms with a single parse, " +
+                                       "%.1fms element by element",
+                               FIELDS,
+                               MEASURED_RUNS,
+                               singleParseNanos / 1e6 / MEASURED_RUNS,
+                               elementByElementNanos / 1e6 / MEASURED_RUNS));
+    }
+
+    /**
+     * How long {@code generate} takes on a new bean named {@code name}, in a write command of its own.
+     */
+    private long time(String name, Consumer<PsiClass> generate) {
+        PsiClass rootClass = configureBean(name);
+
+        long start = System.nanoTime();
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> generate.accept(rootClass));
+        return System.nanoTime() - start;
+    }
+
+    private void generate(PsiClass rootClass) {
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> handler.generate(getProject(), rootClass));
+    }
+
+    private PsiClass configureClass(String name, String body) {
+        PsiJavaFile file = (PsiJavaFile) myFixture.addFileToProject(
+                "sample/" + name + ".java",
+                "package sample;\n\npublic class " + name + " {\n" + body + "}\n");
+
+        return file.getClasses()[0];
+    }
+
+    private PsiClass configureBean(String name) {
+        StringBuilder body = new StringBuilder();
+
+        for (int i = 0; i < FIELDS; i++) {
+            body.append("    private final ").append(TYPES[i % TYPES.length]).append(" f").append(i).append(";\n");
+        }
+
+        return configureClass(name, body.toString());
+    }
+}
@@ -0,0 +1,212 @@
+package fun.mike.intellij.plugin;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compiles generated record beans and checks the generated members' behavior.
+ */
+public class RecordBeanRendererTest {
+    /**
+     * HotSpot's {@code HugeMethodLimit}: methods with more bytecode than this are never compiled by the JIT.
+     */
+    private static final int HUGE_METHOD_LIMIT = 8000;
+
+    private static final int WIDE_FIELDS = 700;
+
+    @Test
+    public void wideBeansHaveNoMethodTooLargeToCompile() throws Exception {
+        String[] types = {"int", "long", "double", "boolean", "java.lang.String", "java.lang.Integer", "char"};
+        List<String> wideTypes = new ArrayList<>();
+
+        for (int i = 0; i < WIDE_FIELDS; i++) {
+            wideTypes.add(types[i % types.length]);
+        }
+
+        // Every option that renders plain Java, the Jackson codecs needing more than the annotations on the classpath
+        RecordBeanSettings settings = new RecordBeanSettings();
+        settings.unrolledHashCode = true;
+        settings.primitiveEquals = true;
+        settings.cachedHashCode = true;
+        settings.stringBuilderToString = true;
+        settings.binaryCodec = true;
+        settings.columns = true;
+        settings.schema = true;
+        settings.intern = true;
+        settings.reusableBuilder = true;
+        settings.mutable = true;
+        settings.fieldVisitor = true;
+        settings.jdbcMapper = true;
+        settings.csvCodec = true;
+
+        Class<?> beanClass = GeneratedBeans.compile(GeneratedBeans.bean("Wide", wideTypes), settings);
+
+        Map<String, Integer> tooLarge = new LinkedHashMap<>(codeLengths(beanClass));
+        tooLarge.values().removeIf(length -> length <= HUGE_METHOD_LIMIT);
+        // Static initializers run once, so they are interpreted whatever their size; Schema's holds every constant
+        tooLarge.keySet().removeIf(method -> method.contains(".<clinit>"));
+
+        assertEquals(Collections.emptyMap(), tooLarge);
+    }
+
+    @Test
+    public void diffMaskComparesByValueWithoutPrimitiveEquals() throws Exception {
+        RecordBean bean = GeneratedBeans.bean("Diffed", Arrays.asList(
+                "int", "double", "java.lang.String", "int[]", "java.lang.String[][]"));
+
+        RecordBeanSettings settings = new RecordBeanSettings();
+        settings.diffMask = true;
+        settings.primitiveEquals = false;
+
+        Class<?> beanClass = GeneratedBeans.compile(bean, settings);
+
+        Object left = GeneratedBeans.build(beanClass, values(1, Double.NaN, "a", new int[]{1, 2},
+                                                             new String[][]{{"x"}}));
+
+        Object same = GeneratedBeans.build(beanClass, values(1, Double.NaN, "a", new int[]{1, 2},
+                                                             new String[][]{{"x"}}));
+
+        Object different = GeneratedBeans.build(beanClass, values(1, 0.0, "a", new int[]{1, 3},
+                                                                  new String[][]{{"y"}}));
+
+        assertEquals(0L, diffMask(left, same));
+        assertEquals(bit(beanClass, "F1_BIT") | bit(beanClass, "F3_BIT") | bit(beanClass, "F4_BIT"),
+                     diffMask(left, different));
+    }
+
+    private static Map<String, Object> values(Object... values) {
+        Map<String, Object> byName = new LinkedHashMap<>();
+
+        for (int i = 0; i < values.length; i++) {
+            byName.put("f" + i, values[i]);
+        }
+
+        return byName;
+    }
+
+    private static long diffMask(Object left, Object right) throws Exception {
+        return (Long) GeneratedBeans.invoke(GeneratedBeans.method(left.getClass(), "diffMask"), left, right);
+    }
+
+    private static long bit(Class<?> beanClass, String name) throws Exception {
+        return beanClass.getField(name).getLong(null);
+    }
+
+    /**
+     * The bytecode length of every method of {@code type} and the classes nested in it, by class and method name.
+     */
+    private static Map<String, Integer> codeLengths(Class<?> type) throws IOException {
+        Map<String, Integer> lengths = new LinkedHashMap<>();
+        String resource = type.getName().substring(type.getName().lastIndexOf('.') + 1) + ".class";
+
+        try (InputStream stream = type.getResourceAsStream(resource)) {
+            readCodeLengths(type.getName(), new DataInputStream(stream), lengths);
+        }
+
+        for (Class<?> nested : type.getDeclaredClasses()) {
+            lengths.putAll(codeLengths(nested));
+        }
+
+        return lengths;
+    }
+
+    /**
+     * Reads just enough of a class file to find each method's {@code Code} attribute.
+     */
+    private static void readCodeLengths(String className, DataInputStream in, Map<String, Integer> lengths)
+            throws IOException {
+        in.skipBytes(8); // magic and version
+
+        int constantCount = in.readUnsignedShort();
+        String[] utf8 = new String[constantCount];
+
+        for (int i = 1; i < constantCount; i++) {
+            int tag = in.readUnsignedByte();
+
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.skipBytes(8);
+                    i++; // which take two entries
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipBytes(4);
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes(3);
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.skipBytes(2);
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag + " in " + className);
+            }
+        }
+
+        in.skipBytes(6); // access flags, this and super class
+        in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+
+        int fieldCount = in.readUnsignedShort();
+
+        for (int i = 0; i < fieldCount; i++) {
+            in.skipBytes(6); // access flags, name and descriptor
+            skipAttributes(in);
+        }
+
+        int methodCount = in.readUnsignedShort();
+
+        for (int i = 0; i < methodCount; i++) {
+            in.skipBytes(2); // access flags
+            String name = utf8[in.readUnsignedShort()] + utf8[in.readUnsignedShort()];
+            int attributeCount = in.readUnsignedShort();
+
+            for (int j = 0; j < attributeCount; j++) {
+                String attribute = utf8[in.readUnsignedShort()];
+                int length = in.readInt();
+
+                if (attribute.equals("Code")) {
+                    in.skipBytes(4); // max stack and max locals
+                    int codeLength = in.readInt();
+                    lengths.put(className + "." + name, codeLength);
+                    in.skipBytes(length - 8);
+                } else {
+                    in.skipBytes(length);
+                }
+            }
+        }
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int attributeCount = in.readUnsignedShort();
+
+        for (int i = 0; i < attributeCount; i++) {
+            in.skipBytes(2);
+            in.skipBytes(in.readInt());
+        }
+    }
+}